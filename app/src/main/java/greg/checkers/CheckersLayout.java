@@ -2,6 +2,7 @@ package greg.checkers;
 
 import android.app.Activity;
 import android.graphics.Color;
+import android.graphics.drawable.Drawable;
 import android.support.v7.widget.AppCompatImageView;
 import android.view.View;
 import android.view.ViewGroup;
@@ -10,10 +11,11 @@ import android.widget.TableLayout;
 import android.widget.TableRow;
 import android.util.DisplayMetrics;
 
+import java.util.Arrays;
+
 import greg.checkers.game.CheckersGame;
 import greg.checkers.game.Board;
 import greg.checkers.game.Piece;
-import greg.checkers.game.Position;
 
 public class CheckersLayout extends TableLayout {
 
@@ -37,47 +39,58 @@ public class CheckersLayout extends TableLayout {
         }
     };
 
+    // what each playable square showed after the last refresh, by Board square:
+    // a piece image in the low bits and a background above them, or -1 at first
+    private final int[] shown = new int[Board.SQUARES];
+    private static final int IMAGE_BITS = 3;
+    private static final int IMAGE_MASK = (1 << IMAGE_BITS) - 1;
+
+    // piece images, indexed by NO_PIECE or 1 + the piece's kind
+    private static final int NO_PIECE = 0;
+    private static final int[] PIECE_IMAGES = {
+            0, R.drawable.black, R.drawable.blackking, R.drawable.red, R.drawable.redking};
+    // backgrounds of playable squares
+    private static final int PLAIN = 0;
+    private static final int SELECTED = 1;
+    private static final int OPTION = 2;
+
+    // looked up once; each cell gets its own drawable from the shared state
+    private final Drawable.ConstantState[] pieceImages = new Drawable.ConstantState[PIECE_IMAGES.length];
+    private final int[] backgroundColors = new int[3];
+
+    // redraw only the squares whose piece or highlight changed since the last refresh
     public void refresh() {
         Board myBoard = myGame.getBoard();
-        for (int x = 0; x < 8; x++) {
-            for (int y = 0; y < 8; y++)
-                if (myBoard.isGameSquare(x, y)) {
-                    CheckerImageView cell = cells[x][y];
-                    Piece piece = myBoard.getPiece(x, y);
-                    if (piece != null) {
-                        int color = piece.getColor();
-                        boolean king = piece.isKing();
-                        // set the correct image
-                        if (color == CheckersGame.RED) {
-                            if (king) {
-                                cell.setImageResource(R.drawable.redking);
-                            } else {
-                                cell.setImageResource(R.drawable.red);
-                            }
-                        } else if (color == CheckersGame.BLACK) {
-                            if (king) {
-                                cell.setImageResource(R.drawable.blackking);
-                            } else {
-                                cell.setImageResource(R.drawable.black);
-                            }
-                        }
-                        // set the background color
-                        if (myActivity.isSelected(piece)) {
-                            cell.setBackgroundColor(getResources().getColor(R.color.cellSelect));
-                        } else {
-                            cell.setBackgroundColor(getResources().getColor(R.color.cellBlack));
-                        }
-                    } else {
-                        // clear the image
-                        cell.setImageDrawable(null);
-                        Position curPos = new Position(x, y);
-                        if (myActivity.isOption(curPos) /* && highlightsEnabled */) {
-                            cell.setBackgroundColor(getResources().getColor(R.color.cellOption));
-                        } else {
-                            cell.setBackgroundColor(getResources().getColor(R.color.cellBlack));
-                        }
-                    }
+        int selected = myActivity.getSelectedSquare();
+        int options = myActivity.getMoveOptions();
+        for (int sq = 0; sq < Board.SQUARES; sq++) {
+            int x = Board.squareX(sq);
+            int y = Board.squareY(sq);
+            Piece piece = myBoard.getPiece(x, y);
+            int image = NO_PIECE;
+            int background = PLAIN;
+            if (piece != null) {
+                image = ((piece.getColor() == CheckersGame.RED) ? 3 : 1) + (piece.isKing() ? 1 : 0);
+                if (sq == selected) {
+                    background = SELECTED;
                 }
+            } else if ((options & (1 << sq)) != 0 /* && highlightsEnabled */) {
+                background = OPTION;
+            }
+
+            int state = image | (background << IMAGE_BITS);
+            int old = shown[sq];
+            if (state == old) {
+                continue;
+            }
+            CheckerImageView cell = cells[x][y];
+            if (old < 0 || (old & IMAGE_MASK) != image) {
+                cell.setImageDrawable((image == NO_PIECE) ? null : pieceImages[image].newDrawable(getResources()));
+            }
+            if (old < 0 || (old >> IMAGE_BITS) != background) {
+                cell.setBackgroundColor(backgroundColors[background]);
+            }
+            shown[sq] = state;
         }
     }
 
@@ -97,6 +110,14 @@ public class CheckersLayout extends TableLayout {
         myGame = game;
         Board myBoard = myGame.getBoard();
 
+        for (int image = NO_PIECE + 1; image < PIECE_IMAGES.length; image++) {
+            pieceImages[image] = getResources().getDrawable(PIECE_IMAGES[image]).getConstantState();
+        }
+        backgroundColors[PLAIN] = getResources().getColor(R.color.cellBlack);
+        backgroundColors[SELECTED] = getResources().getColor(R.color.cellSelect);
+        backgroundColors[OPTION] = getResources().getColor(R.color.cellOption);
+        Arrays.fill(shown, -1);
+
         params = new LayoutParams(
                 ViewGroup.LayoutParams.WRAP_CONTENT,
                 ViewGroup.LayoutParams.WRAP_CONTENT);
@@ -132,7 +153,7 @@ public class CheckersLayout extends TableLayout {
                 if (myBoard.isGameSquare(x,y)) {
                     // add click handler
                     cell.setOnClickListener(CellClick);
-                    bgColor = getResources().getColor(R.color.cellBlack);
+                    bgColor = backgroundColors[PLAIN];
                 }
                 else {
                     bgColor = getResources().getColor(R.color.cellRed);
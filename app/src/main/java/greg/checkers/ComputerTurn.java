@@ -1,118 +1,236 @@
 package greg.checkers;
 
-import android.os.AsyncTask;
-import android.preference.PreferenceFragment;
+import android.content.Context;
+import android.content.res.AssetFileDescriptor;
+import android.util.Log;
 
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
 import java.util.ArrayList;
 
+import greg.checkers.game.AlphaBeta;
+import greg.checkers.game.AnalysisCache;
 import greg.checkers.game.Board;
 import greg.checkers.game.CheckersGame;
 import greg.checkers.game.Move;
+import greg.checkers.game.OpeningBook;
 import greg.checkers.game.Piece;
+import greg.checkers.game.SearchEngine;
 
-public class ComputerTurn extends AsyncTask<String, String, String>
+// chooses the computer's move for one turn. made on the UI thread from the
+// game as it stands, and run on the EngineService thread
+public class ComputerTurn
 {
-    private MyCheckersActivity myActivity;
-    private CheckersGame myGame;
+    private static final String TAG = "ComputerTurn";
+
+    private Context myContext;
+    private Board myBoard;
+    private int myTurn;
     private String myDifficulty;
     private Move selectedMove;
     private boolean allowAnyMove;
+    private volatile AlphaBeta search;
+    private volatile boolean cancelled;
+
+    // search results carry over between turns; turns run one at a time
+    private static SearchEngine engine;
+    // mapped from the assets on first use; null if it cannot be read
+    private static OpeningBook book;
+    private static boolean bookLoaded;
+    // results of earlier games, read on first use and written in the background
+    private static AnalysisCache analysisCache;
 
-    public ComputerTurn(MyCheckersActivity activity,
+    public ComputerTurn(Context context,
                         CheckersGame game,
                         String difficulty,
                         boolean allowAny)
     {
-        super();
-
-        myActivity = activity;
-        myGame = game;
+        myContext = context.getApplicationContext();
+        // the game goes on changing on the UI thread
+        myBoard = new Board(game.getBoard());
+        myTurn = game.whoseTurn();
         myDifficulty = difficulty;
         allowAnyMove = allowAny;
         selectedMove = null;
     }
 
-    protected int minimax(Board base, int turn, int depth)
-    {
-        int oppositeTurn = (turn == CheckersGame.RED ? CheckersGame.BLACK : CheckersGame.RED);
-        Move[] baseMoves = base.getMoves(turn, allowAnyMove);
+    private static synchronized SearchEngine getEngine() {
+        if (engine == null) {
+            engine = new SearchEngine();
+        }
+        return engine;
+    }
 
-        int score = 999;
+    // 0 to 3 from easy to very hard
+    private static int getLevel(String difficulty) {
+        if ("Medium".equals(difficulty)) {
+            return 1;
+        } else if ("Hard".equals(difficulty)) {
+            return 2;
+        } else if ("Very Hard".equals(difficulty)) {
+            return 3;
+        }
+        return 0;
+    }
 
-        int[][] data = base.saveBoard();
-        for (Move move : baseMoves)
-        {
-            Board specificBoard = new Board(data);
-            specificBoard.makeMove(move);
-
-            int moveScore;
-            if (depth > 0) {
-                moveScore = minimax(specificBoard, oppositeTurn, depth - 1);
-            } else {
-                moveScore = specificBoard.pseudoScore();
-            }
+    // search depth of the levels that search
+    private static int getDepth(int level) {
+        // captures are searched out past the depth, so these play about
+        // as well as full width depths 4 and 7 in less time
+        return (level == 2) ? 2 : 5;
+    }
 
-            if (score == 999) {
-                score = moveScore;
-            }
+    // think about the computer's replies while the player is to move,
+    // on the levels that search
+    public static void ponder(CheckersGame game, String difficulty, boolean allowAny) {
+        int level = getLevel(difficulty);
+        if (level > 1) {
+            getEngine().ponder(game.getBoard(), game.whoseTurn(), allowAny, getDepth(level));
+        } else {
+            stopPondering();
+        }
+    }
 
-            if (turn == CheckersGame.RED) {
-                // MIN
-                score = (moveScore < score) ? moveScore : score;
-            } else if (turn == CheckersGame.BLACK) {
-                // MAX
-                score = (moveScore > score) ? moveScore : score;
-            }
+    public static synchronized void stopPondering() {
+        if (engine != null) {
+            engine.stopPondering();
         }
-        return score;
     }
 
-    protected Move Minimax(int depth)
-    {
-        Board realBoard = myGame.getBoard();
-        Move moves[] = myGame.getMoves();
+    // forget the previous game's results; on the EngineService thread
+    static void newGame() {
+        getEngine().newGame();
+    }
 
-        int[][] data = realBoard.saveBoard();
+    // set up the engine, analysis cache and opening book before the first turn
+    // needs them; on the EngineService thread
+    static void warmUp(Context context) {
+        openAnalysisCache(getEngine(), context.getFilesDir());
+        getBook(context);
+    }
 
-        ArrayList<Move> bestMoves = new ArrayList<>();
-        int bestScore = 1000;
+    private static synchronized void openAnalysisCache(SearchEngine engine, File filesDir) {
+        if (analysisCache == null) {
+            analysisCache = new AnalysisCache(new File(filesDir, "analysis"));
+            engine.setAnalysisCache(analysisCache);
+        }
+    }
 
-        for (Move move : moves) {
-            Board moveBoard = new Board(data);
-            moveBoard.makeMove(move);
-            int score = minimax(moveBoard, CheckersGame.BLACK, depth);
-            if (score < bestScore) {
-                bestMoves.clear();
-                bestScore = score;
-            }
-            if (score == bestScore) {
-                bestMoves.add(move);
+    // start writing the results of this session
+    public static synchronized void flushAnalysis() {
+        if (analysisCache != null) {
+            logAnalysisError();
+            analysisCache.flush();
+        }
+    }
+
+    // report a failure to read or write the analysis cache since the last report
+    private static synchronized void logAnalysisError() {
+        IOException error = analysisCache.takeLastError();
+        if (error != null) {
+            Log.w(TAG, "analysis cache not read or written", error);
+        }
+    }
+
+    // search up to depth plies, giving up on deeper iterations after millis.
+    // a reply pondered during the player's turn is played at once
+    protected Move Minimax(int depth, long millis)
+    {
+        SearchEngine engine = getEngine();
+        openAnalysisCache(engine, myContext.getFilesDir());
+        logAnalysisError();
+        Move pondered = engine.choosePonderedMove(myBoard, myTurn, allowAnyMove, depth);
+        if (pondered != null) {
+            Log.d(TAG, "pondered reply played");
+            return pondered;
+        }
+        Move cached = engine.chooseCachedMove(myBoard, myTurn, allowAnyMove, depth);
+        if (cached != null) {
+            Log.d(TAG, "cached result played");
+            return cached;
+        }
+        // the same search every turn, so its buffers and move ordering stay warm
+        search = engine.keptSearch(allowAnyMove);
+        if (cancelled) {
+            search.stop();
+        }
+        ArrayList<Move> bestMoves = search.bestMoves(myBoard, myTurn, depth, millis);
+        Log.d(TAG, myDifficulty + " search: " + search.getStats());
+        if (!search.isStopped()) {
+            engine.storeResult(myBoard, myTurn, allowAnyMove, search, bestMoves);
+        }
+        if (bestMoves.size() == 0) {
+            return null;
+        }
+        return bestMoves.get((int)(Math.random() * bestMoves.size()));
+    }
+
+    // the asset is stored uncompressed so it can be mapped straight from the apk
+    private static synchronized OpeningBook getBook(Context context) {
+        if (!bookLoaded) {
+            bookLoaded = true;
+            try {
+                AssetFileDescriptor descriptor = context.getAssets().openFd("opening.book");
+                FileInputStream input = descriptor.createInputStream();
+                try {
+                    book = OpeningBook.map(input.getChannel(),
+                            descriptor.getStartOffset(), descriptor.getLength());
+                } finally {
+                    input.close();
+                }
+            } catch (IOException e) {
+                Log.w(TAG, "opening book not loaded", e);
             }
         }
+        return book;
+    }
+
+    // stop the search at the next node; the move chosen is then not played
+    public void cancelSearch() {
+        cancelled = true;
+        AlphaBeta running = search;
+        if (running != null) {
+            running.stop();
+        }
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    // how long to wait before playing the chosen move, so the easy levels do not answer at once
+    public long getPauseMillis() {
+        return (getLevel(myDifficulty) > 1) ? 0 : 1000;
+    }
 
-        int randomIndex = (int)(Math.random() * bestMoves.size());
-        Move randomMove = bestMoves.get(randomIndex);
-        return randomMove;
+    // a legal move picked at random, for when choosing one failed, or null if there is none
+    public Move fallbackMove() {
+        if (myTurn != CheckersGame.RED) return null;
+        Move moves[] = myBoard.getMoves(myTurn, allowAnyMove);
+        return (moves.length == 0) ? null : moves[(int)(moves.length * Math.random())];
     }
 
-    @Override
-    protected String doInBackground(String... strings) {
-        if (myGame.whoseTurn() != CheckersGame.RED) return null;
-        Move moves[] = myGame.getMoves();
+    // the computer's move, or null if it has none
+    public Move chooseMove() {
+        if (myTurn != CheckersGame.RED) return null;
+        // the table and pondered results stay for the search below
+        stopPondering();
+        Move moves[] = myBoard.getMoves(myTurn, allowAnyMove);
 
         if (moves.length == 0) return null;
 
-        int difficulty = 0;
-        if (myDifficulty.equals("Easy")) {
-            difficulty = 0;
-        } else if (myDifficulty.equals("Medium")) {
-            difficulty = 1;
-        } else if (myDifficulty.equals("Hard")) {
-            difficulty = 2;
-        } else if (myDifficulty.equals("Very Hard")) {
-            difficulty = 3;
+        // book moves are played straight away at every difficulty
+        OpeningBook openingBook = getBook(myContext);
+        if (openingBook != null) {
+            selectedMove = openingBook.chooseMove(myBoard, myTurn, allowAnyMove);
+            if (selectedMove != null) {
+                return selectedMove;
+            }
         }
 
+        int difficulty = getLevel(myDifficulty);
+
         if (difficulty == 0)
         {
             // easy CPU chooses move randomly
@@ -129,7 +247,7 @@ public class ComputerTurn extends AsyncTask<String, String, String>
             int curScore = -1;
             for (Move option : moves) {
                 int score = option.captures.size();
-                Piece startPiece = myGame.getBoard().getPiece(option.start());
+                Piece startPiece = myBoard.getPiece(option.start());
                 if (option.kings && !startPiece.isKing())
                 {
                     score += 2;
@@ -149,31 +267,11 @@ public class ComputerTurn extends AsyncTask<String, String, String>
 
         if (difficulty > 1)
         {
-            int depth = (difficulty == 2) ? 4 : 7;
-            selectedMove = Minimax(depth);
-        }
-        else
-        {
-            // sleep on easy/medium
-            try {
-                Thread.sleep(1000);
-            } catch (Exception e) {}
+            int depth = getDepth(difficulty);
+            long millis = (difficulty == 2) ? 1000 : 3000;
+            selectedMove = Minimax(depth, millis);
         }
 
-        return null;
-    }
-
-    @Override
-    protected void onPostExecute(String s) {
-        super.onPostExecute(s);
-        if (myGame.whoseTurn() == CheckersGame.RED) {
-            if (selectedMove != null) {
-                myGame.makeMove(selectedMove);
-                myActivity.prepTurn();
-            } else {
-                // player wins
-                myActivity.statusText.setText("You won!");
-            }
-        }
+        return selectedMove;
     }
 }
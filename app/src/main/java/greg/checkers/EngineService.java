@@ -0,0 +1,124 @@
+package greg.checkers;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.Process;
+import android.util.Log;
+
+import greg.checkers.game.Move;
+
+// runs the computer's turns for the whole process on one long lived thread,
+// taking search, stop and new game requests in order. the engine's table,
+// searches and opening book stay loaded between turns and games, so no turn
+// pays for setting them up. chosen moves come back on the UI thread
+public class EngineService {
+    public interface Callback {
+        // on the UI thread; move is null when the computer has none
+        void onMoveChosen(Move move);
+    }
+
+    private static final String TAG = "EngineService";
+
+    private static EngineService instance;
+
+    private final Handler engineHandler;
+    private final Handler mainHandler;
+    // bumped by every request, so a turn that has been replaced delivers nothing
+    private int generation;
+    private ComputerTurn current;
+
+    private EngineService(final Context context) {
+        HandlerThread thread = new HandlerThread("EngineService", Process.THREAD_PRIORITY_BACKGROUND);
+        thread.start();
+        engineHandler = new Handler(thread.getLooper());
+        mainHandler = new Handler(Looper.getMainLooper());
+        engineHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                ComputerTurn.warmUp(context);
+            }
+        });
+    }
+
+    // the service, starting it and warming up the engine the first time
+    public static synchronized EngineService getInstance(Context context) {
+        if (instance == null) {
+            instance = new EngineService(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    // play turn once the engine thread gets to it, stopping any turn before it.
+    // callback is only called if no other request comes first
+    public synchronized void search(final ComputerTurn turn, final Callback callback) {
+        stop();
+        final int id = generation;
+        current = turn;
+        engineHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                if (!isCurrent(id)) {
+                    return;
+                }
+                Move chosen;
+                try {
+                    chosen = turn.chooseMove();
+                } catch (RuntimeException e) {
+                    // this is the only engine thread, so a failed search must not end it.
+                    // the game goes on with any legal move, and later turns start afresh
+                    Log.e(TAG, "computer turn failed", e);
+                    ComputerTurn.newGame();
+                    chosen = turn.fallbackMove();
+                }
+                if (!isCurrent(id)) {
+                    return;
+                }
+                final Move move = chosen;
+                mainHandler.postDelayed(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (finish(id) && !turn.isCancelled()) {
+                            callback.onMoveChosen(move);
+                        }
+                    }
+                }, turn.getPauseMillis());
+            }
+        });
+    }
+
+    // stop the turn being searched at its next node and drop any that are waiting.
+    // returns at once; their callbacks are not called
+    public synchronized void stop() {
+        generation++;
+        if (current != null) {
+            current.cancelSearch();
+            current = null;
+        }
+    }
+
+    // stop any turn and forget the previous game's results before the next turn
+    public synchronized void newGame() {
+        stop();
+        engineHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                ComputerTurn.newGame();
+            }
+        });
+    }
+
+    private synchronized boolean isCurrent(int id) {
+        return id == generation;
+    }
+
+    // whether request id is still the latest, ending it if it is
+    private synchronized boolean finish(int id) {
+        if (id != generation) {
+            return false;
+        }
+        current = null;
+        return true;
+    }
+}
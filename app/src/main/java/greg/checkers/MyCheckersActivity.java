@@ -2,11 +2,11 @@ package greg.checkers;
 
 import android.app.Activity;
 import android.app.AlertDialog;
+import android.content.Context;
 import android.content.Intent;
 import android.content.SharedPreferences;
 import android.content.pm.ActivityInfo;
 import android.content.res.Configuration;
-import android.os.AsyncTask;
 import android.os.Bundle;
 import android.os.Handler;
 import android.preference.PreferenceManager;
@@ -18,15 +18,19 @@ import android.widget.LinearLayout;
 import android.widget.TextView;
 import android.widget.Toast;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Map;
 
 import greg.checkers.game.Board;
 import greg.checkers.game.CheckersGame;
+import greg.checkers.game.GameSnapshot;
 import greg.checkers.game.Move;
 import greg.checkers.game.Piece;
 import greg.checkers.game.Position;
+import greg.checkers.game.SnapshotFile;
 
 import static android.content.ContentValues.TAG;
 
@@ -38,6 +42,9 @@ public class MyCheckersActivity extends AppCompatActivity {
     private String prefDifficulty;
     private boolean prefAllowAnyMove;
 
+    // the game as of the last move, written in the background
+    private static SnapshotFile snapshotFile;
+
     private static final String DIFFICULTY = "pref_difficulty";
     private static final String ANY_MOVE = "pref_any_move";
 
@@ -45,9 +52,7 @@ public class MyCheckersActivity extends AppCompatActivity {
     protected void onCreate(Bundle saved)
     {
         super.onCreate(saved);
-        createGameBoard();
-        // portrait only
-        setRequestedOrientation(ActivityInfo.SCREEN_ORIENTATION_PORTRAIT);
+        engineService = EngineService.getInstance(this);
         //
         ////PreferenceManager.setDefaultValues(this, R.xml.preferences, false);
         //
@@ -55,6 +60,10 @@ public class MyCheckersActivity extends AppCompatActivity {
         sharedPreferences.registerOnSharedPreferenceChangeListener(preferencesChangeListener);
         prefDifficulty = sharedPreferences.getString(DIFFICULTY, null);
         prefAllowAnyMove = sharedPreferences.getBoolean(ANY_MOVE, false);
+        // the game is restored with the preferences it is played under
+        createGameBoard();
+        // portrait only
+        setRequestedOrientation(ActivityInfo.SCREEN_ORIENTATION_PORTRAIT);
     }
 
     @Override
@@ -63,6 +72,55 @@ public class MyCheckersActivity extends AppCompatActivity {
         prepTurn();
     }
 
+    @Override
+    protected void onPause() {
+        super.onPause();
+        // the turn starts again on resume
+        clearComputerTask();
+        ComputerTurn.stopPondering();
+        ComputerTurn.flushAnalysis();
+        saveGame();
+    }
+
+    private static synchronized SnapshotFile getSnapshotFile(Context context) {
+        if (snapshotFile == null) {
+            snapshotFile = new SnapshotFile(new File(context.getFilesDir(), "game.snapshot"));
+        }
+        return snapshotFile;
+    }
+
+    // the game saved when the app last stopped, or a new one
+    private CheckersGame restoreGame() {
+        long start = System.nanoTime();
+        try {
+            byte[] data = getSnapshotFile(this).read();
+            if (data != null) {
+                GameSnapshot snapshot = GameSnapshot.decode(data);
+                if (prefDifficulty == null) {
+                    prefDifficulty = snapshot.getDifficulty();
+                }
+                CheckersGame game = snapshot.getGame();
+                game.setAnyMove(prefAllowAnyMove);
+                Log.d(TAG, "game restored in " + (System.nanoTime() - start) / 1000 + " us");
+                return game;
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "saved game not restored", e);
+        }
+        return new CheckersGame(prefAllowAnyMove);
+    }
+
+    // write the game in the background, so it survives the process being killed
+    private void saveGame() {
+        SnapshotFile file = getSnapshotFile(this);
+        // a write fails in the background, so it is reported by the next save
+        IOException error = file.takeLastError();
+        if (error != null) {
+            Log.w(TAG, "game not saved", error);
+        }
+        file.save(new GameSnapshot(gamelogic, prefDifficulty).encode());
+    }
+
     // show menu with settings icon
     @Override
     public boolean onCreateOptionsMenu(Menu menu)
@@ -100,7 +158,7 @@ public class MyCheckersActivity extends AppCompatActivity {
 
     private void createGameBoard()
     {
-        gamelogic = new CheckersGame(prefAllowAnyMove);
+        gamelogic = restoreGame();
 
         LinearLayout rootLayout = new LinearLayout(this);
         rootLayout.setOrientation(LinearLayout.VERTICAL);
@@ -121,19 +179,14 @@ public class MyCheckersActivity extends AppCompatActivity {
         setContentView(rootLayout);
     }
 
+    // stop the computer's turn, if it is thinking
     public void clearComputerTask() {
-        if (computerTask != null) {
-            if (computerTask.getStatus() != AsyncTask.Status.FINISHED)
-            {
-                computerTask.cancel(true);
-            }
-            computerTask = null;
-        }
+        engineService.stop();
     }
 
     // restart game
     private void restart() {
-        clearComputerTask();
+        engineService.newGame();
         gamelogic.restart();
         checkersView.refresh();
         prepTurn();
@@ -141,21 +194,37 @@ public class MyCheckersActivity extends AppCompatActivity {
 
     Piece selectedPiece;
     Position selectedPosition;
-    Piece selectablePieces[];
-    Position moveOptions[];
-
-    ComputerTurn computerTask = null;
+    // squares of the pieces that can move, and of where the selected one can go
+    int selectablePieces;
+    int moveOptions;
+
+    // plays the computer's turns on its own thread, keeping the engine warm
+    private EngineService engineService;
+
+    private final EngineService.Callback computerMoved = new EngineService.Callback() {
+        @Override
+        public void onMoveChosen(Move move) {
+            if (gamelogic.whoseTurn() == CheckersGame.RED) {
+                if (move != null) {
+                    gamelogic.makeMove(move);
+                    prepTurn();
+                } else {
+                    // player wins
+                    statusText.setText("You won!");
+                }
+            }
+        }
+    };
 
     // prepare a human or computer turn
     public void prepTurn() {
-        Board board = gamelogic.getBoard();
-
         selectedPiece = null;
         selectedPosition = null;
-        selectablePieces = null;
-        moveOptions = null;
+        selectablePieces = 0;
+        moveOptions = 0;
 
         clearComputerTask();
+        saveGame();
 
         int turn = gamelogic.whoseTurn();
 
@@ -163,31 +232,21 @@ public class MyCheckersActivity extends AppCompatActivity {
             statusText.setText("Red's (computer's) turn. Difficulty: "+prefDifficulty);
 
             // run the CPU AI on another thread
-            computerTask = new ComputerTurn(this, gamelogic, prefDifficulty, prefAllowAnyMove);
-            computerTask.execute();
+            engineService.search(new ComputerTurn(this, gamelogic, prefDifficulty, prefAllowAnyMove),
+                    computerMoved);
 
         } else if (turn == CheckersGame.BLACK) {
             statusText.setText("Black's (player's) turn.");
 
-            // prep for human player turn
-            ArrayList<Piece> selectablePieces = new ArrayList<>();
-            Move moves[] = gamelogic.getMoves();
-
             // find pieces which can be moved
-            for (Move move : moves) {
-                Piece newPiece = board.getPiece(move.start());
-                if (!selectablePieces.contains(newPiece)) {
-                    selectablePieces.add(newPiece);
-                }
-            }
+            selectablePieces = gamelogic.getMovablePieces();
 
-            // convert to array
-            this.selectablePieces = selectablePieces.toArray(
-                    new Piece[selectablePieces.size()]
-            );
-
-            if (selectablePieces.size() == 0) {
+            if (selectablePieces == 0) {
                 statusText.setText("You lost!");
+                ComputerTurn.stopPondering();
+            } else {
+                // think about replies while the player does
+                ComputerTurn.ponder(gamelogic, prefDifficulty, prefAllowAnyMove);
             }
         }
 
@@ -229,64 +288,31 @@ public class MyCheckersActivity extends AppCompatActivity {
         }
     }
 
-    // check which piece is selected
-    public boolean isSelected(Piece piece) {
-        return (piece != null && piece == selectedPiece);
+    // Board square of the selected piece, or -1 if there is none
+    public int getSelectedSquare() {
+        return (selectedPiece == null) ? -1 : Board.square(selectedPosition.x, selectedPosition.y);
     }
 
-    // check which squares are options
-    public boolean isOption(Position checkPosition) {
-        if (moveOptions == null) {
-            return false;
-        }
-        for (Position position : moveOptions) {
-            if (position.equals(checkPosition)) {
-                return true;
-            }
-        }
-        return false;
+    // squares the selected piece can move to, one bit per Board square
+    public int getMoveOptions() {
+        return moveOptions;
     }
 
     public void selectPiece(Piece piece, Position location)
     {
         selectedPiece = null;
         selectedPosition = null;
-        moveOptions = null;
+        moveOptions = 0;
 
-        if (piece != null && selectablePieces != null
-                && piece.getColor() == gamelogic.whoseTurn())
+        if (piece != null && piece.getColor() == gamelogic.whoseTurn())
         {
-            boolean isSelectable = false;
-            for (Piece selectablePiece : selectablePieces) {
-                if (selectablePiece == piece) {
-                    isSelectable = true;
-                }
-            }
-
-            if (isSelectable) {
+            int from = Board.square(location.x, location.y);
+            if ((selectablePieces & (1 << from)) != 0) {
                 selectedPiece = piece;
                 selectedPosition = location;
 
                 // fill move options
-
-                ArrayList<Position> moveOptionsArr = new ArrayList<>();
-
-                Move allMoves[] = gamelogic.getMoves();
-
-                // iterate through moves
-                for (Move checkMove : allMoves) {
-                    Position start = checkMove.start();
-                    Position end = checkMove.end();
-
-                    if (start.equals(location)) {
-                        if (!moveOptionsArr.contains(end)) {
-                            moveOptionsArr.add(end);
-                        }
-                    }
-                }
-
-                // save list results
-                moveOptions = moveOptionsArr.toArray(new Position[moveOptionsArr.size()]);
+                moveOptions = gamelogic.getDestinations(from);
             }
         }
 
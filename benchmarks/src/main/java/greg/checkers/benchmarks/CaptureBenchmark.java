@@ -0,0 +1,38 @@
+package greg.checkers.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+
+import greg.checkers.game.Board;
+import greg.checkers.game.Move;
+import greg.checkers.game.Position;
+
+// capture sequences for the single jumping piece of multi-jump positions
+@State(Scope.Thread)
+public class CaptureBenchmark {
+    @Param({"kingJumps", "redKingJumps", "crowningJumps"})
+    public String position;
+
+    @Param({"false", "true"})
+    public boolean allowAnyMove;
+
+    private Board board;
+    private Position start;
+
+    @Setup
+    public void setup() {
+        board = Positions.board(position);
+        Move[] moves = board.getMoves(Positions.turn(position), false);
+        start = moves[0].start();
+    }
+
+    @Benchmark
+    public ArrayList<Move> getCaptures() {
+        return board.getCaptures(start, allowAnyMove);
+    }
+}
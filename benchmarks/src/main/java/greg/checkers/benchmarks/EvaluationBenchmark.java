@@ -0,0 +1,28 @@
+package greg.checkers.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import greg.checkers.game.Board;
+
+// static evaluation at a leaf
+@State(Scope.Thread)
+public class EvaluationBenchmark {
+    @Param({"opening", "midgame", "kings"})
+    public String position;
+
+    private Board board;
+
+    @Setup
+    public void setup() {
+        board = Positions.board(position);
+    }
+
+    @Benchmark
+    public int pseudoScore() {
+        return board.pseudoScore();
+    }
+}
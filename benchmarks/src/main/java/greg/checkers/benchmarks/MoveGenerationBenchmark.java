@@ -0,0 +1,44 @@
+package greg.checkers.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import greg.checkers.game.Board;
+import greg.checkers.game.Move;
+import greg.checkers.game.MoveList;
+
+// full legal move generation for the side to move
+@State(Scope.Thread)
+public class MoveGenerationBenchmark {
+    @Param({"opening", "midgame", "kings", "kingJumps", "crowningJumps"})
+    public String position;
+
+    @Param({"false", "true"})
+    public boolean allowAnyMove;
+
+    private Board board;
+    private int turn;
+    private MoveList list = new MoveList(256);
+
+    @Setup
+    public void setup() {
+        board = Positions.board(position);
+        turn = Positions.turn(position);
+    }
+
+    @Benchmark
+    public Move[] getMoves() {
+        return board.getMoves(turn, allowAnyMove);
+    }
+
+    // the search's allocation-free path into a reused packed move list
+    @Benchmark
+    public int generateMoves() {
+        list.clear();
+        board.generateMoves(turn, allowAnyMove, list);
+        return list.size();
+    }
+}
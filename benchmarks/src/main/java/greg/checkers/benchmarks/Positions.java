@@ -0,0 +1,112 @@
+package greg.checkers.benchmarks;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import greg.checkers.game.Board;
+import greg.checkers.game.CheckersGame;
+
+// fixed positions for the benchmarks, drawn as rows from y = 0 down to y = 7.
+// b and r are black and red men, B and R kings, anything else is empty
+final class Positions {
+    private static final Map<String, String[]> DIAGRAMS = new HashMap<>();
+    private static final Map<String, Integer> TURNS = new HashMap<>();
+
+    static {
+        add("opening", CheckersGame.BLACK,
+                ".r.r.r.r",
+                "r.r.r.r.",
+                ".r.r.r.r",
+                "........",
+                "........",
+                "b.b.b.b.",
+                ".b.b.b.b",
+                "b.b.b.b.");
+        add("midgame", CheckersGame.BLACK,
+                ".r.r.r.r",
+                "r.r...r.",
+                ".r.r.r..",
+                "..r...r.",
+                ".b...b..",
+                "b...b.b.",
+                ".b.b...b",
+                "b.b.b.b.");
+        add("kings", CheckersGame.BLACK,
+                "........",
+                "..R.....",
+                ".....R..",
+                "........",
+                ".B...r..",
+                "........",
+                "...B...B",
+                "........");
+        // black king in a lattice of red men
+        add("kingJumps", CheckersGame.BLACK,
+                "........",
+                "........",
+                ".r.r.r..",
+                "........",
+                ".r.r.r..",
+                "........",
+                ".r.r.r..",
+                "B.......");
+        // red king in a lattice of black men
+        add("redKingJumps", CheckersGame.RED,
+                ".......R",
+                "..b.b.b.",
+                "........",
+                "..b.b.b.",
+                "........",
+                "..b.b.b.",
+                "........",
+                "........");
+        // black man that crowns part way through its jumps
+        add("crowningJumps", CheckersGame.BLACK,
+                "........",
+                "r.r.r...",
+                "........",
+                "r.r.r...",
+                "........",
+                "..r.r...",
+                "...b....",
+                "........");
+    }
+
+    private Positions() {
+    }
+
+    private static void add(String name, int turn, String... rows) {
+        DIAGRAMS.put(name, rows);
+        TURNS.put(name, turn);
+    }
+
+    static Board board(String name) {
+        String[] rows = DIAGRAMS.get(name);
+        if (rows == null) {
+            throw new IllegalArgumentException("unknown position " + name);
+        }
+        int[][] positions = new int[8][8];
+        for (int y = 0; y < 8; y++) {
+            for (int x = 0; x < 8; x++) {
+                char c = rows[y].charAt(x);
+                int value;
+                switch (c) {
+                    case 'b': value = CheckersGame.BLACK; break;
+                    case 'B': value = CheckersGame.BLACK + CheckersGame.KINGED; break;
+                    case 'r': value = CheckersGame.RED; break;
+                    case 'R': value = CheckersGame.RED + CheckersGame.KINGED; break;
+                    default: value = CheckersGame.NONE; break;
+                }
+                if (value != CheckersGame.NONE && (x + y) % 2 == 0) {
+                    throw new IllegalArgumentException(name + ": piece on a light square at " + x + "," + y);
+                }
+                positions[x][y] = value;
+            }
+        }
+        return new Board(positions);
+    }
+
+    static int turn(String name) {
+        return TURNS.get(name);
+    }
+}
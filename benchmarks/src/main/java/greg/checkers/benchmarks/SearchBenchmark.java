@@ -0,0 +1,50 @@
+package greg.checkers.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+
+import greg.checkers.game.AlphaBeta;
+import greg.checkers.game.Board;
+import greg.checkers.game.Move;
+import greg.checkers.game.TranspositionTable;
+
+// one ComputerTurn-style search at a fixed depth, single threaded,
+// starting from an empty transposition table each time
+@State(Scope.Thread)
+public class SearchBenchmark {
+    @Param({"opening", "midgame", "kings"})
+    public String position;
+
+    // the depths ComputerTurn plays Hard and Very Hard at, with the
+    // quiescence search on at its default limit as in the app
+    @Param({"2", "5"})
+    public int depth;
+
+    private Board board;
+    private int turn;
+    private TranspositionTable table;
+
+    @Setup
+    public void setup() {
+        board = Positions.board(position);
+        turn = Positions.turn(position);
+        table = new TranspositionTable(4 * 1024 * 1024);
+    }
+
+    @Setup(Level.Invocation)
+    public void clearTable() {
+        table.clear();
+    }
+
+    @Benchmark
+    public ArrayList<Move> bestMoves() {
+        AlphaBeta search = new AlphaBeta(false, table);
+        return search.bestMoves(board, turn, depth);
+    }
+}
@@ -0,0 +1,435 @@
+package greg.checkers.game;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+// search results kept on disk between games and sessions: by position key,
+// the score, depth and best move of a finished search.
+//
+// new results are appended to a log in batches on a background thread. once
+// the log grows past a quarter of the limit it is merged into an index of
+// records sorted by key, which is memory mapped and binary searched like the
+// opening book. when there are more results than the limit, the ones least
+// recently stored or looked up are dropped at the merge.
+//
+// both files start with a magic number and version; the index then has its
+// record count. records are a key, a packed best move and a mask of all the
+// best moves as longs, a score and a depth as shorts, and the time in seconds
+// the result was last used
+public class AnalysisCache {
+    static final int LOG_MAGIC = 0x434B414C;
+    static final int INDEX_MAGIC = 0x434B4149;
+    static final int VERSION = 2;
+    static final int LOG_HEADER_BYTES = 8;
+    static final int INDEX_HEADER_BYTES = 12;
+    static final int RECORD_BYTES = 32;
+
+    public static final int DEFAULT_MAX_ENTRIES = 1 << 16;
+    // results waiting for the log before a write is started
+    private static final int BATCH_SIZE = 64;
+
+    // one stored search result
+    public static class Analysis {
+        private final long key;
+        private final long move;
+        private final long bestMask;
+        private final int score;
+        private final int depth;
+        private final int stamp;
+
+        Analysis(long key, long move, long bestMask, int score, int depth, int stamp) {
+            this.key = key;
+            this.move = move;
+            this.bestMask = bestMask;
+            this.score = score;
+            this.depth = depth;
+            this.stamp = stamp;
+        }
+
+        // one of the best moves, packed
+        public long getMove() {
+            return move;
+        }
+
+        // the moves sharing the best score: bit i is set when the i-th legal move,
+        // in generation order, is one of them. only the first 64 moves have a bit
+        public long getBestMask() {
+            return bestMask;
+        }
+
+        // score from the view of the side to move
+        public int getScore() {
+            return score;
+        }
+
+        public int getDepth() {
+            return depth;
+        }
+    }
+
+    private final File logFile;
+    private final File indexFile;
+    private final int maxEntries;
+    private final ExecutorService writer;
+    // seconds when the cache was opened; results used since are not stored again
+    private final int sessionStamp;
+
+    // files are read on first use
+    private boolean loaded;
+    private ByteBuffer index;
+    private int indexCount;
+    // results not in the index: those in the log and those waiting for it
+    private final HashMap<Long, Analysis> recent = new HashMap<>();
+    private ArrayList<Analysis> pending = new ArrayList<>();
+    private int logCount;
+    // the last failure to read or write the files, until it is taken
+    private volatile IOException lastError;
+
+    public AnalysisCache(File directory) {
+        this(directory, DEFAULT_MAX_ENTRIES);
+    }
+
+    // keep up to maxEntries results in directory, which is created if missing
+    public AnalysisCache(File directory, int maxEntries) {
+        directory.mkdirs();
+        logFile = new File(directory, "analysis.log");
+        indexFile = new File(directory, "analysis.index");
+        this.maxEntries = maxEntries;
+        sessionStamp = now();
+        writer = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "AnalysisCache writer");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    private static int now() {
+        return (int)(System.currentTimeMillis() / 1000);
+    }
+
+    // key of a position in the cache; the rules are part of it since they change the moves
+    public static long key(Board board, int turn, boolean allowAnyMove) {
+        long key = board.getHash(turn);
+        return allowAnyMove ? key ^ Board.ANY_MOVE_KEY : key;
+    }
+
+    // the stored result for a position, or null
+    public synchronized Analysis get(Board board, int turn, boolean allowAnyMove) {
+        load();
+        long key = key(board, turn, allowAnyMove);
+        Analysis analysis = recent.get(key);
+        if (analysis == null) {
+            analysis = find(key);
+        }
+        // store it again with the new time, so it is kept over unused results
+        if (analysis != null && analysis.stamp < sessionStamp) {
+            add(new Analysis(key, analysis.move, analysis.bestMask, analysis.score, analysis.depth, now()));
+        }
+        return analysis;
+    }
+
+    // store the result of a search, unless a deeper one is stored already: one
+    // best move packed, and the mask of all of them as getBestMask describes
+    public synchronized void put(Board board, int turn, boolean allowAnyMove, long move, long bestMask,
+                                 int score, int depth) {
+        load();
+        long key = key(board, turn, allowAnyMove);
+        Analysis old = recent.get(key);
+        if (old == null) {
+            old = find(key);
+        }
+        if (old != null && old.depth > depth) {
+            return;
+        }
+        add(new Analysis(key, move, bestMask, score, depth, now()));
+    }
+
+    private void add(Analysis analysis) {
+        recent.put(analysis.key, analysis);
+        pending.add(analysis);
+        if (pending.size() == BATCH_SIZE) {
+            flush();
+        }
+    }
+
+    // start writing the waiting results
+    public void flush() {
+        writer.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    writePending();
+                } catch (IOException e) {
+                    // the cache only saves time; results that fail to write are searched again
+                    lastError = e;
+                }
+            }
+        });
+    }
+
+    // write the waiting results and wait for it, up to millis.
+    // the cache is unusable afterwards
+    public void close(long millis) throws InterruptedException {
+        flush();
+        writer.shutdown();
+        writer.awaitTermination(millis, TimeUnit.MILLISECONDS);
+    }
+
+    // the last failure to read or write the files since the previous call, or null.
+    // a failure loses results but not the cache, so the caller only reports it
+    public IOException takeLastError() {
+        IOException error = lastError;
+        lastError = null;
+        return error;
+    }
+
+    // number of stored results, reading the files if they have not been yet
+    public synchronized int size() {
+        load();
+        int count = indexCount;
+        for (Analysis analysis : recent.values()) {
+            if (find(analysis.key) == null) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    // map the index and read the log, starting again if either is not readable
+    private void load() {
+        if (loaded) {
+            return;
+        }
+        loaded = true;
+        try {
+            if (indexFile.exists()) {
+                mapIndex();
+            }
+        } catch (IOException e) {
+            lastError = e;
+            index = null;
+            indexCount = 0;
+            indexFile.delete();
+        }
+        try {
+            if (logFile.exists()) {
+                readLog();
+            }
+        } catch (IOException e) {
+            lastError = e;
+            recent.clear();
+            logCount = 0;
+            logFile.delete();
+        }
+    }
+
+    private void mapIndex() throws IOException {
+        FileInputStream input = new FileInputStream(indexFile);
+        try {
+            ByteBuffer data = input.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, indexFile.length());
+            if (data.capacity() < INDEX_HEADER_BYTES || data.getInt(0) != INDEX_MAGIC || data.getInt(4) != VERSION) {
+                throw new IOException("not an analysis index file");
+            }
+            int count = data.getInt(8);
+            if (INDEX_HEADER_BYTES + (long)count * RECORD_BYTES > data.capacity()) {
+                throw new IOException("truncated analysis index file");
+            }
+            index = data;
+            indexCount = count;
+        } finally {
+            // the mapping stays valid after the file is closed
+            input.close();
+        }
+    }
+
+    private void readLog() throws IOException {
+        FileInputStream input = new FileInputStream(logFile);
+        try {
+            ByteBuffer data = input.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, logFile.length());
+            if (data.capacity() < LOG_HEADER_BYTES || data.getInt(0) != LOG_MAGIC || data.getInt(4) != VERSION) {
+                throw new IOException("not an analysis log file");
+            }
+            // a record cut short by a crash is left out
+            int count = (data.capacity() - LOG_HEADER_BYTES) / RECORD_BYTES;
+            for (int i = 0; i < count; i++) {
+                Analysis analysis = readRecord(data, LOG_HEADER_BYTES + i * RECORD_BYTES);
+                recent.put(analysis.key, analysis);
+            }
+            logCount = count;
+        } finally {
+            input.close();
+        }
+    }
+
+    private static Analysis readRecord(ByteBuffer data, int offset) {
+        return new Analysis(data.getLong(offset), data.getLong(offset + 8), data.getLong(offset + 16),
+                data.getShort(offset + 24), data.getShort(offset + 26), data.getInt(offset + 28));
+    }
+
+    private static void writeRecord(DataOutputStream output, Analysis analysis) throws IOException {
+        output.writeLong(analysis.key);
+        output.writeLong(analysis.move);
+        output.writeLong(analysis.bestMask);
+        output.writeShort(analysis.score);
+        output.writeShort(analysis.depth);
+        output.writeInt(analysis.stamp);
+    }
+
+    // append the waiting results to the log, merging it into the index once
+    // it is big enough. runs on the writer thread only
+    private void writePending() throws IOException {
+        ArrayList<Analysis> batch;
+        synchronized (this) {
+            if (pending.isEmpty()) {
+                return;
+            }
+            batch = pending;
+            pending = new ArrayList<>();
+        }
+
+        boolean newLog = !logFile.exists() || logFile.length() < LOG_HEADER_BYTES;
+        if (!newLog) {
+            // drop a record cut short by a crash so the new ones line up
+            long records = (logFile.length() - LOG_HEADER_BYTES) / RECORD_BYTES;
+            RandomAccessFile file = new RandomAccessFile(logFile, "rw");
+            try {
+                file.setLength(LOG_HEADER_BYTES + records * RECORD_BYTES);
+            } finally {
+                file.close();
+            }
+        }
+        DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(logFile, !newLog)));
+        try {
+            if (newLog) {
+                output.writeInt(LOG_MAGIC);
+                output.writeInt(VERSION);
+            }
+            for (Analysis analysis : batch) {
+                writeRecord(output, analysis);
+            }
+        } finally {
+            output.close();
+        }
+
+        int count;
+        synchronized (this) {
+            logCount += batch.size();
+            count = logCount;
+        }
+        if (count >= maxEntries / 4) {
+            compact();
+        }
+    }
+
+    // write the index and the log as one new index, then empty the log
+    private void compact() throws IOException {
+        ByteBuffer oldIndex;
+        int oldCount;
+        HashMap<Long, Analysis> logged;
+        synchronized (this) {
+            oldIndex = index;
+            oldCount = indexCount;
+            // results added since the last write stay in pending and go to the new log
+            logged = new HashMap<>(recent);
+            for (Analysis analysis : pending) {
+                logged.remove(analysis.key);
+            }
+        }
+
+        // the newest result for each key
+        HashMap<Long, Analysis> merged = new HashMap<>(logged);
+        for (int i = 0; i < oldCount; i++) {
+            Analysis analysis = readRecord(oldIndex, INDEX_HEADER_BYTES + i * RECORD_BYTES);
+            if (!merged.containsKey(analysis.key)) {
+                merged.put(analysis.key, analysis);
+            }
+        }
+        Analysis[] records = merged.values().toArray(new Analysis[merged.size()]);
+        if (records.length > maxEntries) {
+            // keep the most recently used
+            Arrays.sort(records, new Comparator<Analysis>() {
+                @Override
+                public int compare(Analysis a, Analysis b) {
+                    return (a.stamp < b.stamp) ? 1 : (a.stamp > b.stamp) ? -1 : 0;
+                }
+            });
+            records = Arrays.copyOf(records, maxEntries);
+        }
+        Arrays.sort(records, new Comparator<Analysis>() {
+            @Override
+            public int compare(Analysis a, Analysis b) {
+                return (a.key < b.key) ? -1 : (a.key > b.key) ? 1 : 0;
+            }
+        });
+
+        // replace the index in one step so a crash leaves the old or the new one
+        File temporary = new File(indexFile.getPath() + ".tmp");
+        FileOutputStream file = new FileOutputStream(temporary);
+        DataOutputStream output = new DataOutputStream(new BufferedOutputStream(file));
+        try {
+            output.writeInt(INDEX_MAGIC);
+            output.writeInt(VERSION);
+            output.writeInt(records.length);
+            for (Analysis analysis : records) {
+                writeRecord(output, analysis);
+            }
+            output.flush();
+            file.getFD().sync();
+        } finally {
+            output.close();
+        }
+        if (!temporary.renameTo(indexFile)) {
+            throw new IOException("cannot replace " + indexFile);
+        }
+
+        synchronized (this) {
+            mapIndex();
+            for (Map.Entry<Long, Analysis> entry : logged.entrySet()) {
+                // unless it was replaced in the meantime
+                if (recent.get(entry.getKey()) == entry.getValue()) {
+                    recent.remove(entry.getKey());
+                }
+            }
+            // the waiting results go to a new log
+            logFile.delete();
+            logCount = 0;
+        }
+    }
+
+    // binary search of the index
+    private Analysis find(long key) {
+        int low = 0;
+        int high = indexCount;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            long middleKey = index.getLong(INDEX_HEADER_BYTES + middle * RECORD_BYTES);
+            if (middleKey < key) {
+                low = middle + 1;
+            } else if (middleKey > key) {
+                high = middle;
+            } else {
+                return readRecord(index, INDEX_HEADER_BYTES + middle * RECORD_BYTES);
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,248 @@
+package greg.checkers.game;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Semaphore;
+
+// scores a stream of positions offline, away from the app. positions go
+// through a bounded queue to worker threads, each with its own single
+// threaded search and table, and results come back in the order the
+// positions went in. at most capacity positions are in the pipeline at a
+// time, queued, searching or waiting to be taken, and submit blocks until
+// there is room, so memory stays flat however long the input is.
+// greg.checkers.tools.AnalyzeTool runs it on a PDN archive from the command line
+public class BatchAnalyzer {
+    // one position to search, to depth plies or until it has visited nodes
+    // positions after the first iteration, whichever comes first; 0 nodes for no limit
+    public static class Request {
+        final Board board;
+        final int turn;
+        final int depth;
+        final long nodes;
+
+        // the board is copied, so the caller may go on using it
+        public Request(Board board, int turn, int depth, long nodes) {
+            this.board = new Board(board);
+            this.turn = turn;
+            this.depth = depth;
+            this.nodes = nodes;
+        }
+
+        public Board getBoard() {
+            return new Board(board);
+        }
+
+        public int getTurn() {
+            return turn;
+        }
+    }
+
+    public static class Result {
+        final long index;
+        final Request request;
+        final ArrayList<Move> bestMoves;
+        final int score;
+        final SearchStats stats;
+
+        Result(long index, Request request, ArrayList<Move> bestMoves, int score, SearchStats stats) {
+            this.index = index;
+            this.request = request;
+            this.bestMoves = bestMoves;
+            this.score = score;
+            this.stats = stats;
+        }
+
+        // position of the request in the input, counting from 0
+        public long getIndex() {
+            return index;
+        }
+
+        public Request getRequest() {
+            return request;
+        }
+
+        // the equally good best moves, first found first; empty when the side to move has none
+        public List<Move> getBestMoves() {
+            return bestMoves;
+        }
+
+        // the first best move, or null when the side to move has none
+        public Move getBestMove() {
+            return bestMoves.isEmpty() ? null : bestMoves.get(0);
+        }
+
+        // from the view of the side to move
+        public int getScore() {
+            return score;
+        }
+
+        public SearchStats getStats() {
+            return stats;
+        }
+    }
+
+    // marks the end of the input on the queue
+    private static final Job END = new Job(-1, null);
+
+    private static class Job {
+        final long index;
+        final Request request;
+
+        Job(long index, Request request) {
+            this.index = index;
+            this.request = request;
+        }
+    }
+
+    private final boolean allowAnyMove;
+    private final int tableBytes;
+    private final BlockingQueue<Job> queue;
+    private final Semaphore room;
+    private final Thread[] workers;
+    private volatile Tablebase tablebase;
+
+    // finished results waiting to be taken, by index modulo capacity. there is
+    // never more than capacity in the pipeline, so slots are not shared
+    private final Result[] finished;
+    private long submitted;
+    private long taken;
+    private boolean ended;
+    private RuntimeException failure;
+
+    // threads workers, each with a table of tableBytes, and at most capacity positions in flight
+    public BatchAnalyzer(boolean allowAnyMove, int threads, int capacity, int tableBytes) {
+        if (threads < 1 || capacity < 1) {
+            throw new IllegalArgumentException("need at least one thread and one position in flight");
+        }
+        this.allowAnyMove = allowAnyMove;
+        this.tableBytes = tableBytes;
+        queue = new ArrayBlockingQueue<>(capacity);
+        room = new Semaphore(capacity);
+        finished = new Result[capacity];
+        workers = new Thread[threads];
+        for (int i = 0; i < threads; i++) {
+            workers[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    work();
+                }
+            }, "BatchAnalyzer worker");
+            workers[i].setDaemon(true);
+            workers[i].start();
+        }
+    }
+
+    // every core, four positions in flight per worker and the default table size
+    public BatchAnalyzer(boolean allowAnyMove) {
+        this(allowAnyMove, Runtime.getRuntime().availableProcessors(),
+                4 * Runtime.getRuntime().availableProcessors(), SearchEngine.DEFAULT_TABLE_BYTES);
+    }
+
+    // positions the tablebase covers are scored from it, for requests submitted from now on
+    public void setTablebase(Tablebase tablebase) {
+        this.tablebase = tablebase;
+    }
+
+    // queue a position, waiting while the pipeline is full. results are taken in this order
+    public void submit(Request request) throws InterruptedException {
+        room.acquire();
+        long index;
+        synchronized (this) {
+            if (ended) {
+                room.release();
+                throw new IllegalStateException("input already ended");
+            }
+            index = submitted++;
+        }
+        queue.put(new Job(index, request));
+    }
+
+    // no more positions will be submitted; take returns null after the last result
+    public void end() throws InterruptedException {
+        synchronized (this) {
+            if (ended) {
+                return;
+            }
+            ended = true;
+            notifyAll();
+        }
+        for (int i = 0; i < workers.length; i++) {
+            queue.put(END);
+        }
+    }
+
+    // the result of the next position in input order, waiting for it if need be,
+    // or null once the input has ended and every result has been taken
+    public Result take() throws InterruptedException {
+        Result result;
+        synchronized (this) {
+            while (true) {
+                if (failure != null) {
+                    throw failure;
+                }
+                int slot = (int)(taken % finished.length);
+                if (finished[slot] != null) {
+                    result = finished[slot];
+                    finished[slot] = null;
+                    taken++;
+                    break;
+                }
+                if (ended && taken == submitted) {
+                    return null;
+                }
+                wait();
+            }
+        }
+        room.release();
+        return result;
+    }
+
+    // stop the workers without waiting for the positions in flight.
+    // take then fails rather than waiting for results that will not come
+    public void shutdown() {
+        synchronized (this) {
+            if (failure == null) {
+                failure = new IllegalStateException("analyzer shut down");
+            }
+            notifyAll();
+        }
+        for (Thread worker : workers) {
+            worker.interrupt();
+        }
+    }
+
+    private void work() {
+        TranspositionTable table = new TranspositionTable(tableBytes);
+        try {
+            while (true) {
+                Job job = queue.take();
+                if (job == END) {
+                    return;
+                }
+                Result result = analyze(job.index, job.request, table);
+                synchronized (this) {
+                    finished[(int)(job.index % finished.length)] = result;
+                    notifyAll();
+                }
+            }
+        } catch (InterruptedException e) {
+            // shut down
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                failure = e;
+                notifyAll();
+            }
+        }
+    }
+
+    // search one position on a worker thread; tests stand in a slow search here
+    Result analyze(long index, Request request, TranspositionTable table) {
+        AlphaBeta search = new AlphaBeta(allowAnyMove, table);
+        search.setTablebase(tablebase);
+        search.setNodeLimit(request.nodes);
+        ArrayList<Move> bestMoves = search.bestMoves(request.board, request.turn, request.depth, 0);
+        return new Result(index, request, bestMoves, search.getBestScore(), search.getStats());
+    }
+}
@@ -0,0 +1,617 @@
+package greg.checkers.game;
+
+import java.util.ArrayList;
+
+/**
+ * Created by Greg on 8/6/2017.
+ */ // data for complete board state
+public class Board {
+    //private CheckersGame checkersGame;
+    private Piece board[][];
+
+    // bitboards: one bit per playable square, numbered x * 4 + y / 2 so that
+    // ascending bit order matches the x-then-y scan order of the piece grid
+    private int blackMask;
+    private int redMask;
+    private int kingMask;
+    // zobrist hash of the pieces, kept up to date as pieces are placed and removed
+    private long hash;
+    // evaluation terms, kept up to date the same way: pieces of each color and
+    // the sum of PIECE_SQUARE_SCORES over every piece, from black's side
+    private int blackPieces;
+    private int redPieces;
+    private int squareScore;
+
+    // a jump sequence takes at most 12 pieces
+    private static final int MAX_JUMPS = 12;
+    // landing squares of the jump sequence being built, for Move results
+    private final int[] jumpPath = new int[MAX_JUMPS];
+
+    public static final int SQUARES = 32;
+    private static final int EVEN_COLUMNS = 0x0F0F0F0F;
+    private static final int ODD_COLUMNS = 0xF0F0F0F0;
+
+    // bit shift for one diagonal step towards (-1,1) (1,1) (-1,-1) (1,-1),
+    // for squares in even and odd columns
+    private static final int[] EVEN_SHIFT = new int[]{-3, 5, -4, 4};
+    private static final int[] ODD_SHIFT = new int[]{-4, 4, -5, 3};
+    // direction indexes each side may step in
+    private static final int[] RED_DIRS = new int[]{0, 1};
+    private static final int[] BLACK_DIRS = new int[]{2, 3};
+    private static final int[] KING_DIRS = new int[]{0, 1, 2, 3};
+    // squares that stay on the board after one step in each direction
+    private static final int[] STEP_FROM = new int[4];
+    // coordinates of each square index
+    private static final int[] SQUARE_X = new int[SQUARES];
+    private static final int[] SQUARE_Y = new int[SQUARES];
+
+    // zobrist keys per piece kind (black man, black king, red man, red king) and square,
+    // from a fixed seed so hashes are the same in every run
+    private static final long[][] PIECE_KEYS = new long[4][SQUARES];
+    // score of each piece kind on each square, from black's side:
+    // 2 per man and 5 per king wherever they stand
+    private static final int[][] PIECE_SQUARE_SCORES = new int[4][SQUARES];
+    // mixed into the hash when red is to move
+    public static final long SIDE_KEY;
+    // mixed into the hash when any move is allowed, since the rules change the moves
+    public static final long ANY_MOVE_KEY;
+
+    static {
+        int[] dx = new int[]{-1, 1, -1, 1};
+        int[] dy = new int[]{1, 1, -1, -1};
+        for (int x = 0; x < 8; x++) {
+            for (int y = 0; y < 8; y++) {
+                if ((x + y) % 2 == 0) {
+                    continue;
+                }
+                int sq = square(x, y);
+                SQUARE_X[sq] = x;
+                SQUARE_Y[sq] = y;
+                for (int d = 0; d < 4; d++) {
+                    int nx = x + dx[d];
+                    int ny = y + dy[d];
+                    if (nx >= 0 && ny >= 0 && nx < 8 && ny < 8) {
+                        STEP_FROM[d] |= 1 << sq;
+                    }
+                }
+            }
+        }
+
+        for (int sq = 0; sq < SQUARES; sq++) {
+            PIECE_SQUARE_SCORES[pieceKind(CheckersGame.BLACK, false)][sq] = 2;
+            PIECE_SQUARE_SCORES[pieceKind(CheckersGame.BLACK, true)][sq] = 5;
+            PIECE_SQUARE_SCORES[pieceKind(CheckersGame.RED, false)][sq] = -2;
+            PIECE_SQUARE_SCORES[pieceKind(CheckersGame.RED, true)][sq] = -5;
+        }
+
+        long seed = 0x2545F4914F6CDD1DL;
+        for (int kind = 0; kind < 4; kind++) {
+            for (int sq = 0; sq < SQUARES; sq++) {
+                seed += 0x9E3779B97F4A7C15L;
+                PIECE_KEYS[kind][sq] = mix(seed);
+            }
+        }
+        seed += 0x9E3779B97F4A7C15L;
+        SIDE_KEY = mix(seed);
+        seed += 0x9E3779B97F4A7C15L;
+        ANY_MOVE_KEY = mix(seed);
+    }
+
+    // splitmix64 finalizer
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    private static int pieceKind(int color, boolean king) {
+        return ((color == CheckersGame.RED) ? 2 : 0) + (king ? 1 : 0);
+    }
+
+    // square index of a game square
+    public static int square(int x, int y) {
+        return x * 4 + y / 2;
+    }
+
+    public static int squareX(int square) {
+        return SQUARE_X[square];
+    }
+
+    public static int squareY(int square) {
+        return SQUARE_Y[square];
+    }
+
+    // move every set bit one diagonal step in direction d, dropping bits that leave the board
+    private static int step(int mask, int d) {
+        mask &= STEP_FROM[d];
+        return shift(mask & EVEN_COLUMNS, EVEN_SHIFT[d]) | shift(mask & ODD_COLUMNS, ODD_SHIFT[d]);
+    }
+
+    private static int shift(int mask, int amount) {
+        return (amount > 0) ? (mask << amount) : (mask >>> -amount);
+    }
+
+    private static int[] getDirections(int color, boolean king) {
+        if (king) {
+            return KING_DIRS;
+        } else if (color == CheckersGame.RED) {
+            return RED_DIRS;
+        } else {
+            return BLACK_DIRS;
+        }
+    }
+
+    // men of each color only step forward, kings step both ways
+    private static boolean isForward(int color, int d) {
+        return (color == CheckersGame.RED) ? d < 2 : d >= 2;
+    }
+
+    private static int opposite(int color) {
+        return (color == CheckersGame.RED) ? CheckersGame.BLACK : CheckersGame.RED;
+    }
+
+    int colorMask(int color) {
+        return (color == CheckersGame.RED) ? redMask : blackMask;
+    }
+
+    int kingMask() {
+        return kingMask;
+    }
+
+    public int pieceCount() {
+        return blackPieces + redPieces;
+    }
+
+    private int occupiedMask() {
+        return blackMask | redMask;
+    }
+
+    public boolean isGameSquare(int x, int y) {
+        // within 8x8 dimensions and is odd-square
+        return (x >= 0 && y >= 0 && x < 8 && y < 8 && (x + y) % 2 > 0);
+    }
+
+    public boolean isGameSquare(Position pos) {
+        return isGameSquare(pos.x, pos.y);
+    }
+
+
+    // create new board
+    public Board(CheckersGame checkersGame) {
+        //this.checkersGame = checkersGame;
+        board = new Piece[8][8];
+        for (int x = 0; x < 8; x++) {
+            for (int y = 0; y < 8; y++) {
+                int side = (y < 3) ? CheckersGame.RED : (y > 4) ? CheckersGame.BLACK : 0;
+                boolean validSquare = this.isGameSquare(x, y);
+                if (side != CheckersGame.NONE && validSquare) {
+                    board[x][y] = new Piece(side, false);
+                    placeMask(square(x, y), side, false);
+                } else {
+                    board[x][y] = null;
+                }
+            }
+        }
+    }
+
+    // create from existing positions
+    public Board(int[][] positions) {
+        //this.checkersGame = checkersGame;
+        board = new Piece[8][8];
+        for (int x = 0; x < 8; x++) {
+            for (int y = 0; y < 8; y++) {
+                if (positions[x][y] > CheckersGame.NONE) {
+                    int side = positions[x][y] % CheckersGame.KINGED;
+                    boolean kinged = positions[x][y] > CheckersGame.KINGED;
+                    board[x][y] = new Piece(side, kinged);
+                    placeMask(square(x, y), side, kinged);
+                } else {
+                    board[x][y] = null;
+                }
+            }
+        }
+    }
+
+    // replace every piece with the ones in the masks
+    void setPieces(int black, int red, int kings) {
+        blackMask = 0;
+        redMask = 0;
+        kingMask = 0;
+        hash = 0;
+        blackPieces = 0;
+        redPieces = 0;
+        squareScore = 0;
+        for (int x = 0; x < 8; x++) {
+            for (int y = 0; y < 8; y++) {
+                board[x][y] = null;
+            }
+        }
+        for (int sq = 0; sq < SQUARES; sq++) {
+            int bit = 1 << sq;
+            if (((black | red) & bit) != 0) {
+                int color = ((red & bit) != 0) ? CheckersGame.RED : CheckersGame.BLACK;
+                boolean king = (kings & bit) != 0;
+                board[SQUARE_X[sq]][SQUARE_Y[sq]] = new Piece(color, king);
+                placeMask(sq, color, king);
+            }
+        }
+    }
+
+    // put a piece in the masks, hash and evaluation terms
+    private void placeMask(int sq, int color, boolean king) {
+        int bit = 1 << sq;
+        if (color == CheckersGame.RED) {
+            redMask |= bit;
+            redPieces++;
+        } else {
+            blackMask |= bit;
+            blackPieces++;
+        }
+        if (king) {
+            kingMask |= bit;
+        }
+        int kind = pieceKind(color, king);
+        hash ^= PIECE_KEYS[kind][sq];
+        squareScore += PIECE_SQUARE_SCORES[kind][sq];
+    }
+
+    // take the piece on an occupied square out of the masks, hash and evaluation terms
+    private void removeMask(int sq) {
+        int bit = 1 << sq;
+        int color;
+        if ((redMask & bit) != 0) {
+            color = CheckersGame.RED;
+            redPieces--;
+        } else {
+            color = CheckersGame.BLACK;
+            blackPieces--;
+        }
+        int kind = pieceKind(color, (kingMask & bit) != 0);
+        hash ^= PIECE_KEYS[kind][sq];
+        squareScore -= PIECE_SQUARE_SCORES[kind][sq];
+        blackMask &= ~bit;
+        redMask &= ~bit;
+        kingMask &= ~bit;
+    }
+
+    // zobrist hash of the position with turn to move
+    public long getHash(int turn) {
+        return (turn == CheckersGame.RED) ? hash ^ SIDE_KEY : hash;
+    }
+
+    // copy of another board, with its own pieces
+    public Board(Board other) {
+        board = new Piece[8][8];
+        for (int x = 0; x < 8; x++) {
+            for (int y = 0; y < 8; y++) {
+                Piece piece = other.board[x][y];
+                if (piece != null) {
+                    board[x][y] = new Piece(piece.getColor(), piece.isKing());
+                }
+            }
+        }
+        blackMask = other.blackMask;
+        redMask = other.redMask;
+        kingMask = other.kingMask;
+        hash = other.hash;
+        blackPieces = other.blackPieces;
+        redPieces = other.redPieces;
+        squareScore = other.squareScore;
+    }
+
+    // save positions as int[][]
+    public int[][] saveBoard() {
+        int result[][] = new int[8][8];
+        for (int x = 0; x < 8; x++) {
+            for (int y = 0; y < 8; y++) {
+                if (board[x][y] != null) {
+                    Piece piece = board[x][y];
+                    result[x][y] = piece.getColor();
+                    if (piece.isKing()) {
+                        result[x][y] += CheckersGame.KINGED;
+                    }
+                } else {
+                    result[x][y] = CheckersGame.NONE;
+                }
+            }
+        }
+        return result;
+    }
+
+    // get a piece on the board
+    public Piece getPiece(int x, int y) {
+        return (isGameSquare(x, y) ? board[x][y] : null);
+    }
+    public Piece getPiece(Position pos) {
+        return getPiece(pos.x, pos.y);
+    }
+
+    // find a piece on the board
+    public Position getPosition(Piece piece) {
+        int x = 0, y = 0;
+        for (; x < 8; x++) {
+            for (; y < 8; y++) {
+                if (getPiece(x, y) == piece) {
+                    return new Position(x, y);
+                }
+            }
+        }
+        return null;
+    }
+
+    // add the steps of the piece on sq to list, or to moves as Move objects when given
+    private void addSteps(int sq, int color, boolean king, MoveList list, ArrayList<Move> moves) {
+        int empty = ~occupiedMask();
+        for (int d : getDirections(color, king)) {
+            int dest = step(1 << sq, d) & empty;
+            if (dest != 0) {
+                int to = Integer.numberOfTrailingZeros(dest);
+                if (moves != null) {
+                    Move newMove = new Move(SQUARE_X[sq], SQUARE_Y[sq]);
+                    newMove.add(SQUARE_X[to], SQUARE_Y[to]);
+                    moves.add(newMove);
+                } else {
+                    boolean crowns = !king && (SQUARE_Y[to] == 0 || SQUARE_Y[to] == 7);
+                    list.add(PackedMove.pack(sq, to, 0, crowns));
+                }
+            }
+        }
+    }
+
+    // depth-first search for the jump sequences of the piece that started on start and
+    // has jumped length times to sq, taking the pieces in captured. a man that reaches the
+    // last row part way through keeps jumping as a king. finished sequences go to list,
+    // or to moves as Move objects when given
+    private void addJumps(int start, int sq, int color, boolean king, boolean wasKing, int captured,
+                          int length, boolean allowAnyMove, MoveList list, ArrayList<Move> moves) {
+        // captured pieces stay on the board until the move is made,
+        // so they can be neither jumped again nor landed on
+        int capturable = colorMask(opposite(color)) & ~captured;
+        int empty = ~occupiedMask();
+        boolean continues = false;
+        for (int d : getDirections(color, king)) {
+            int over = step(1 << sq, d) & capturable;
+            int dest = step(over, d) & empty;
+            if (dest != 0) {
+                int next = Integer.numberOfTrailingZeros(dest);
+                boolean crowned = king || SQUARE_Y[next] == 0 || SQUARE_Y[next] == 7;
+                jumpPath[length] = next;
+                addJumps(start, next, color, crowned, wasKing, captured | over,
+                        length + 1, allowAnyMove, list, moves);
+                continues = true;
+            }
+        }
+
+        // only add this move if there are no longer alternatives
+        if (length > 0 && (!continues || allowAnyMove)) {
+            if (moves != null) {
+                Move newMove = new Move(SQUARE_X[start], SQUARE_Y[start]);
+                for (int i = 0; i < length; i++) {
+                    newMove.add(SQUARE_X[jumpPath[i]], SQUARE_Y[jumpPath[i]]);
+                }
+                moves.add(newMove);
+            } else {
+                list.add(PackedMove.pack(start, sq, captured, king && !wasKing));
+            }
+        }
+    }
+
+    // every legal move for turn, into list or moves
+    private void generateMoves(int turn, boolean allowAnyMove, MoveList list, ArrayList<Move> moves) {
+        int own = colorMask(turn);
+        int opponents = colorMask(opposite(turn));
+        int empty = ~occupiedMask();
+        int kings = own & kingMask;
+
+        // find every piece with a step or a jump, shifting all pieces at once per direction
+        int movers = 0;
+        int jumpers = 0;
+        for (int d = 0; d < 4; d++) {
+            int back = 3 - d;
+            int pieces = isForward(turn, d) ? own : kings;
+            movers |= step(step(pieces, d) & empty, back);
+            int landings = step(step(pieces, d) & opponents, d) & empty;
+            jumpers |= step(step(landings, back), back);
+        }
+
+        // check if non-jumping moves need to be removed
+        boolean capturesOnly = !allowAnyMove && jumpers != 0;
+        int starts = capturesOnly ? jumpers : (movers | jumpers);
+
+        // add moves for each matching piece
+        while (starts != 0) {
+            int sq = Integer.numberOfTrailingZeros(starts);
+            int bit = 1 << sq;
+            starts &= starts - 1;
+            boolean king = (kingMask & bit) != 0;
+            if (!capturesOnly) {
+                addSteps(sq, turn, king, list, moves);
+            }
+            if ((jumpers & bit) != 0) {
+                addJumps(sq, sq, turn, king, king, 0, 0, allowAnyMove, list, moves);
+            }
+        }
+    }
+
+    // add every legal move for turn to list as packed moves, without allocating
+    // unless the list has to grow
+    public void generateMoves(int turn, boolean allowAnyMove, MoveList list) {
+        generateMoves(turn, allowAnyMove, list, null);
+    }
+
+    // jump sequences for the piece on start
+    public ArrayList<Move> getCaptures(Position start, boolean allowAnyMove)
+    {
+        ArrayList<Move> captures = new ArrayList<>();
+        Piece piece = getPiece(start);
+        int sq = square(start.x, start.y);
+        addJumps(sq, sq, piece.getColor(), piece.isKing(), piece.isKing(), 0, 0,
+                allowAnyMove, null, captures);
+        return captures;
+    }
+
+    // get a set of possible moves from a place on the board
+    public ArrayList<Move> getMoves(Position start, boolean allowAnyMove) {
+        Piece piece = getPiece(start);
+        ArrayList<Move> immediateMoves = new ArrayList<>();
+        addSteps(square(start.x, start.y), piece.getColor(), piece.isKing(), null, immediateMoves);
+        immediateMoves.addAll(getCaptures(start, allowAnyMove));
+        return immediateMoves;
+    }
+
+    // get possible moves for current player
+    public Move[] getMoves(int turn, boolean allowAnyMove) {
+        ArrayList<Move> finalMoves = new ArrayList<>();
+        generateMoves(turn, allowAnyMove, null, finalMoves);
+
+        // return choices as a sequence of positions
+        return finalMoves.toArray(new Move[finalMoves.size()]);
+    }
+
+    // carry out a move sequence
+    public void makeMove(Move move) {
+        makeMove(move, null);
+    }
+
+    // carry out a move sequence, recording what changed in undo if given
+    public void makeMove(Move move, MoveUndo undo) {
+        Position start = move.start();
+        Position end = move.end();
+        int captured = 0;
+        for (Position cap : move.captures) {
+            captured |= 1 << square(cap.x, cap.y);
+        }
+        makeMove(square(start.x, start.y), square(end.x, end.y), captured, move.kings, undo);
+    }
+
+    // carry out a packed move, recording what changed in undo if given
+    public void makeMove(long move, MoveUndo undo) {
+        makeMove(PackedMove.from(move), PackedMove.to(move), PackedMove.captured(move),
+                PackedMove.crowns(move), undo);
+    }
+
+    // packed form of a move that is legal on this board
+    public long packMove(Move move) {
+        Position start = move.start();
+        Position end = move.end();
+        int captured = 0;
+        for (Position cap : move.captures) {
+            captured |= 1 << square(cap.x, cap.y);
+        }
+        boolean crowns = move.kings && !getPiece(start).isKing();
+        return PackedMove.pack(square(start.x, start.y), square(end.x, end.y), captured, crowns);
+    }
+
+    // Move for a packed move that is legal on this board, with the squares
+    // it lands on along the way worked out again from its captures
+    public Move unpackMove(long move) {
+        int from = PackedMove.from(move);
+        int to = PackedMove.to(move);
+        int captured = PackedMove.captured(move);
+        Move result = new Move(SQUARE_X[from], SQUARE_Y[from]);
+        if (captured == 0) {
+            result.add(SQUARE_X[to], SQUARE_Y[to]);
+            return result;
+        }
+        Piece piece = board[SQUARE_X[from]][SQUARE_Y[from]];
+        int length = findJumpPath(from, to, piece.getColor(), piece.isKing(), captured, 0);
+        for (int i = 0; i < length; i++) {
+            result.add(SQUARE_X[jumpPath[i]], SQUARE_Y[jumpPath[i]]);
+        }
+        return result;
+    }
+
+    // fill jumpPath with a jump sequence from sq to to taking exactly the pieces in
+    // remaining, returning its length, or -1 if there is none
+    private int findJumpPath(int sq, int to, int color, boolean king, int remaining, int length) {
+        if (remaining == 0) {
+            return (sq == to) ? length : -1;
+        }
+        int empty = ~occupiedMask();
+        for (int d : getDirections(color, king)) {
+            int over = step(1 << sq, d) & remaining;
+            int dest = step(over, d) & empty;
+            if (dest != 0) {
+                int next = Integer.numberOfTrailingZeros(dest);
+                boolean crowned = king || SQUARE_Y[next] == 0 || SQUARE_Y[next] == 7;
+                jumpPath[length] = next;
+                int found = findJumpPath(next, to, color, crowned, remaining & ~over, length + 1);
+                if (found >= 0) {
+                    return found;
+                }
+            }
+        }
+        return -1;
+    }
+
+    // move the piece on square from to square to, removing the pieces in captured
+    private void makeMove(int from, int to, int captured, boolean crowns, MoveUndo undo) {
+        Piece piece = board[SQUARE_X[from]][SQUARE_Y[from]];
+        if (undo != null) {
+            undo.blackMask = blackMask;
+            undo.redMask = redMask;
+            undo.kingMask = kingMask;
+            undo.hash = hash;
+            undo.blackPieces = blackPieces;
+            undo.redPieces = redPieces;
+            undo.squareScore = squareScore;
+            undo.piece = piece;
+            undo.from = from;
+            undo.to = to;
+            undo.promoted = crowns && !piece.isKing();
+            undo.captureCount = 0;
+        }
+        board[SQUARE_X[from]][SQUARE_Y[from]] = null;
+        removeMask(from);
+        // clear captured positions
+        while (captured != 0) {
+            int sq = Integer.numberOfTrailingZeros(captured);
+            captured &= captured - 1;
+            if (undo != null) {
+                int i = undo.captureCount++;
+                undo.captured[i] = board[SQUARE_X[sq]][SQUARE_Y[sq]];
+                undo.capturedSquare[i] = sq;
+            }
+            board[SQUARE_X[sq]][SQUARE_Y[sq]] = null;
+            removeMask(sq);
+        }
+        // place at end position, checking if the piece was kinged
+        board[SQUARE_X[to]][SQUARE_Y[to]] = piece;
+        if (crowns) {
+            piece.makeKing();
+        }
+        placeMask(to, piece.getColor(), piece.isKing());
+    }
+
+    // take back the move recorded in undo
+    public void unmakeMove(MoveUndo undo) {
+        board[SQUARE_X[undo.to]][SQUARE_Y[undo.to]] = null;
+        board[SQUARE_X[undo.from]][SQUARE_Y[undo.from]] = undo.piece;
+        if (undo.promoted) {
+            undo.piece.unmakeKing();
+        }
+        for (int i = 0; i < undo.captureCount; i++) {
+            int sq = undo.capturedSquare[i];
+            board[SQUARE_X[sq]][SQUARE_Y[sq]] = undo.captured[i];
+            undo.captured[i] = null;
+        }
+        undo.piece = null;
+        blackMask = undo.blackMask;
+        redMask = undo.redMask;
+        kingMask = undo.kingMask;
+        hash = undo.hash;
+        blackPieces = undo.blackPieces;
+        redPieces = undo.redPieces;
+        squareScore = undo.squareScore;
+    }
+
+    // score from black's side, read from the terms kept by makeMove
+    public int pseudoScore() {
+        if (blackPieces == 0) {
+            return -1000;
+        } else if (redPieces == 0) {
+            return 1000;
+        }
+        return squareScore;
+    }
+}
@@ -0,0 +1,159 @@
+package greg.checkers.game;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class CheckersGame {
+    public static final int NONE = 0;
+    public static final int BLACK = 1;
+    public static final int RED = 2;
+    public static final int KINGED = 3;
+
+    // checkers game state
+    private Board gameBoard;
+    private int turn;
+    private boolean over;
+    private int winner;
+    private boolean allowAnyMove;
+    // moves made since the game started
+    private final ArrayList<Move> history = new ArrayList<>();
+
+    // legal moves for the current position, generated once per position and
+    // indexed for the UI, which asks about them on every tap
+    private final MoveList moves = new MoveList();
+    private boolean movesValid;
+    // squares of pieces that can move, and by start square the squares they can reach
+    private int movablePieces;
+    private final int[] destinations = new int[Board.SQUARES];
+    // by start square * SQUARES + end square, the index of the move between them
+    // taking the most pieces, or -1
+    private final int[] longestMove = new int[Board.SQUARES * Board.SQUARES];
+
+    // checkers game holds board state and current turn
+    public CheckersGame(boolean anyMove) {
+        gameBoard = new Board(this);
+        turn = CheckersGame.BLACK;
+        over = false;
+        winner = CheckersGame.NONE;
+        allowAnyMove = anyMove;
+        Arrays.fill(longestMove, -1);
+    }
+
+    public void restart() {
+        gameBoard = new Board(this);
+        turn = CheckersGame.BLACK;
+        over = false;
+        winner = CheckersGame.NONE;
+        history.clear();
+        invalidateMoves();
+    }
+
+    public void setAnyMove(boolean anyMove) {
+        allowAnyMove = anyMove;
+        invalidateMoves();
+    }
+
+    public boolean allowsAnyMove() {
+        return allowAnyMove;
+    }
+
+    // check whose turn it is
+    public int whoseTurn() {
+        return turn;
+    }
+
+    // moves made since the game started, oldest first
+    public List<Move> getHistory() {
+        return Collections.unmodifiableList(history);
+    }
+
+    // get the board data
+    public Board getBoard() {
+        return this.gameBoard;
+    }
+
+    public Move getLongestMove(Position start, Position end) {
+        if (!gameBoard.isGameSquare(start) || !gameBoard.isGameSquare(end)) {
+            return null;
+        }
+        updateMoves();
+        int index = longestMove[Board.square(start.x, start.y) * Board.SQUARES + Board.square(end.x, end.y)];
+        return (index < 0) ? null : gameBoard.unpackMove(moves.get(index));
+    }
+
+    public Move[] getMoves() {
+        return gameBoard.getMoves(turn, allowAnyMove);
+    }
+
+    // legal moves for the current turn in packed form. the list is kept
+    // until the position changes, so it must not be modified
+    public MoveList getMoveList() {
+        updateMoves();
+        return moves;
+    }
+
+    // squares of the pieces that have a legal move, one bit per Board square
+    public int getMovablePieces() {
+        updateMoves();
+        return movablePieces;
+    }
+
+    // squares the piece on square from can move to, one bit per Board square
+    public int getDestinations(int from) {
+        updateMoves();
+        return destinations[from];
+    }
+
+    // make a move
+    public void makeMove(Move choice) {
+        gameBoard.makeMove(choice);
+        history.add(choice);
+        advanceTurn();
+        invalidateMoves();
+    }
+
+    private void invalidateMoves() {
+        movesValid = false;
+    }
+
+    // generate and index the legal moves if the position changed since the last time
+    private void updateMoves() {
+        if (movesValid) {
+            return;
+        }
+        // clear only the entries the old moves set
+        for (int i = 0; i < moves.size(); i++) {
+            long move = moves.get(i);
+            longestMove[PackedMove.from(move) * Board.SQUARES + PackedMove.to(move)] = -1;
+            destinations[PackedMove.from(move)] = 0;
+        }
+        moves.clear();
+        gameBoard.generateMoves(turn, allowAnyMove, moves);
+
+        movablePieces = 0;
+        for (int i = 0; i < moves.size(); i++) {
+            long move = moves.get(i);
+            int from = PackedMove.from(move);
+            int to = PackedMove.to(move);
+            movablePieces |= 1 << from;
+            destinations[from] |= 1 << to;
+            int pair = from * Board.SQUARES + to;
+            if (longestMove[pair] < 0
+                    || PackedMove.captureCount(moves.get(longestMove[pair])) < PackedMove.captureCount(move)) {
+                longestMove[pair] = i;
+            }
+        }
+        movesValid = true;
+    }
+
+    // switch turns
+    private void advanceTurn() {
+        if (turn == CheckersGame.RED) {
+            turn = CheckersGame.BLACK;
+        } else {
+            turn = CheckersGame.RED;
+        }
+    }
+}
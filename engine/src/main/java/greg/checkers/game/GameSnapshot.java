@@ -0,0 +1,117 @@
+package greg.checkers.game;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.zip.CRC32;
+
+// a game in progress and the settings it is played with, in a few hundred
+// bytes, to save when the app stops and pick up when it starts again.
+//
+// the format is a magic number and version, the rules, the side to move and
+// the difficulty, the piece masks of the position, the moves from the start
+// as packed moves, and a CRC32 of everything before it. restoring replays the
+// moves, checking each is legal, and then checks the position and turn match
+public class GameSnapshot {
+    static final int MAGIC = 0x434B5347;
+    static final int VERSION = 1;
+
+    private final CheckersGame game;
+    private final String difficulty;
+
+    public GameSnapshot(CheckersGame game, String difficulty) {
+        this.game = game;
+        this.difficulty = difficulty;
+    }
+
+    public CheckersGame getGame() {
+        return game;
+    }
+
+    // the difficulty saved with the game, or null
+    public String getDifficulty() {
+        return difficulty;
+    }
+
+    // the game and difficulty in the snapshot format
+    public byte[] encode() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        DataOutputStream output = new DataOutputStream(bytes);
+        try {
+            output.writeInt(MAGIC);
+            output.writeByte(VERSION);
+            output.writeBoolean(game.allowsAnyMove());
+            output.writeByte(game.whoseTurn());
+            output.writeUTF((difficulty == null) ? "" : difficulty);
+            Board board = game.getBoard();
+            output.writeInt(board.colorMask(CheckersGame.BLACK));
+            output.writeInt(board.colorMask(CheckersGame.RED));
+            output.writeInt(board.kingMask());
+
+            // moves are packed against the position they were made in
+            Board replay = new Board((CheckersGame)null);
+            output.writeInt(game.getHistory().size());
+            for (Move move : game.getHistory()) {
+                output.writeLong(replay.packMove(move));
+                replay.makeMove(move);
+            }
+
+            CRC32 crc = new CRC32();
+            crc.update(bytes.toByteArray());
+            output.writeInt((int)crc.getValue());
+        } catch (IOException e) {
+            // a byte array stream does not throw
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    // the game and difficulty in data, replayed from the start
+    public static GameSnapshot decode(byte[] data) throws IOException {
+        if (data.length < 4) {
+            throw new IOException("game snapshot too short");
+        }
+        CRC32 crc = new CRC32();
+        crc.update(data, 0, data.length - 4);
+        DataInputStream input = new DataInputStream(new ByteArrayInputStream(data));
+        if (input.readInt() != MAGIC || input.readUnsignedByte() != VERSION) {
+            throw new IOException("not a game snapshot");
+        }
+        boolean allowAnyMove = input.readBoolean();
+        int turn = input.readUnsignedByte();
+        String difficulty = input.readUTF();
+        int black = input.readInt();
+        int red = input.readInt();
+        int kings = input.readInt();
+        int count = input.readInt();
+        if (count < 0 || count > (data.length - 4) / 8) {
+            throw new IOException("bad move count in game snapshot");
+        }
+        long[] moves = new long[count];
+        for (int i = 0; i < count; i++) {
+            moves[i] = input.readLong();
+        }
+        if (input.readInt() != (int)crc.getValue() || input.available() != 0) {
+            throw new IOException("game snapshot is damaged");
+        }
+
+        // the rules can change during a game, so the moves are replayed under
+        // any-move rules, which allow every standard move as well
+        CheckersGame game = new CheckersGame(true);
+        for (long move : moves) {
+            if (game.getMoveList().indexOf(move) < 0) {
+                throw new IOException("illegal move in game snapshot");
+            }
+            game.makeMove(game.getBoard().unpackMove(move));
+        }
+        game.setAnyMove(allowAnyMove);
+        Board board = game.getBoard();
+        if (game.whoseTurn() != turn || board.colorMask(CheckersGame.BLACK) != black
+                || board.colorMask(CheckersGame.RED) != red || board.kingMask() != kings) {
+            throw new IOException("game snapshot does not match its moves");
+        }
+        return new GameSnapshot(game, difficulty.isEmpty() ? null : difficulty);
+    }
+}
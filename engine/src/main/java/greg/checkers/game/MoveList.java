@@ -0,0 +1,58 @@
+package greg.checkers.game;
+
+// growable list of moves packed as longs (see PackedMove). the search uses
+// one as a stack for every ply: each node adds its moves on top and
+// truncates back to where it started when it is done
+public class MoveList {
+    private long[] moves;
+    private int size;
+
+    public MoveList() {
+        this(64);
+    }
+
+    public MoveList(int capacity) {
+        moves = new long[Math.max(capacity, 1)];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long get(int i) {
+        return moves[i];
+    }
+
+    public void add(long move) {
+        if (size == moves.length) {
+            long[] grown = new long[moves.length * 2];
+            System.arraycopy(moves, 0, grown, 0, size);
+            moves = grown;
+        }
+        moves[size++] = move;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    // drop every move above size
+    public void truncate(int size) {
+        this.size = size;
+    }
+
+    public void swap(int i, int j) {
+        long move = moves[i];
+        moves[i] = moves[j];
+        moves[j] = move;
+    }
+
+    public int indexOf(long move) {
+        for (int i = 0; i < size; i++) {
+            if (moves[i] == move) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,25 @@
+package greg.checkers.game;
+
+// what Board.makeMove changed, so Board.unmakeMove can put it back.
+// the search keeps one per ply and reuses them
+public class MoveUndo {
+    // at most 12 opposing pieces can be captured in one move
+    private static final int MAX_CAPTURES = 12;
+
+    int blackMask;
+    int redMask;
+    int kingMask;
+    long hash;
+    int blackPieces;
+    int redPieces;
+    int squareScore;
+
+    Piece piece;
+    int from;
+    int to;
+    boolean promoted;
+
+    final Piece[] captured = new Piece[MAX_CAPTURES];
+    final int[] capturedSquare = new int[MAX_CAPTURES];
+    int captureCount;
+}
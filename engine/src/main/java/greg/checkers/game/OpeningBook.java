@@ -0,0 +1,117 @@
+package greg.checkers.game;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+// read-only opening book made by OpeningBookBuilder: moves to play by position,
+// looked up with a binary search over a memory mapped file.
+//
+// layout: header, then fixed size records sorted by key, each a position key
+// (see key()), a packed move and its weight. a position with several book
+// moves has one record per move, next to each other
+public class OpeningBook {
+    static final int MAGIC = 0x434B4F42;
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 12;
+    static final int RECORD_BYTES = 20;
+
+    private final ByteBuffer data;
+    private final int count;
+
+    private OpeningBook(ByteBuffer data) throws IOException {
+        this.data = data;
+        if (data.capacity() < HEADER_BYTES || data.getInt(0) != MAGIC || data.getInt(4) != VERSION) {
+            throw new IOException("not an opening book file");
+        }
+        count = data.getInt(8);
+        if (HEADER_BYTES + (long)count * RECORD_BYTES > data.capacity()) {
+            throw new IOException("truncated opening book file");
+        }
+    }
+
+    public static OpeningBook open(File file) throws IOException {
+        FileInputStream input = new FileInputStream(file);
+        try {
+            return map(input.getChannel(), 0, file.length());
+        } finally {
+            // the mapping stays valid after the file is closed
+            input.close();
+        }
+    }
+
+    // map length bytes of a channel from offset, for books stored inside another file
+    public static OpeningBook map(FileChannel channel, long offset, long length) throws IOException {
+        return new OpeningBook(channel.map(FileChannel.MapMode.READ_ONLY, offset, length));
+    }
+
+    // number of book moves
+    public int size() {
+        return count;
+    }
+
+    // key of a position in the book; the rules are part of it since they change the moves
+    public static long key(Board board, int turn, boolean allowAnyMove) {
+        long key = board.getHash(turn);
+        return allowAnyMove ? key ^ Board.ANY_MOVE_KEY : key;
+    }
+
+    // one of the book moves for the position picked at random by weight,
+    // or null if the position is not in the book
+    public Move chooseMove(Board board, int turn, boolean allowAnyMove) {
+        long key = key(board, turn, allowAnyMove);
+        int first = firstRecord(key);
+        // a different position with the same key could have moves that are not legal here
+        MoveList legal = new MoveList();
+        board.generateMoves(turn, allowAnyMove, legal);
+
+        long total = 0;
+        for (int i = first; i < count && keyAt(i) == key; i++) {
+            if (legal.indexOf(moveAt(i)) >= 0) {
+                total += weightAt(i);
+            }
+        }
+        if (total == 0) {
+            return null;
+        }
+        long pick = (long)(Math.random() * total);
+        for (int i = first; i < count && keyAt(i) == key; i++) {
+            if (legal.indexOf(moveAt(i)) >= 0) {
+                pick -= weightAt(i);
+                if (pick < 0) {
+                    return board.unpackMove(moveAt(i));
+                }
+            }
+        }
+        return null;
+    }
+
+    // index of the first record with key, or of the first one after it
+    private int firstRecord(long key) {
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (keyAt(middle) < key) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private long keyAt(int i) {
+        return data.getLong(HEADER_BYTES + i * RECORD_BYTES);
+    }
+
+    private long moveAt(int i) {
+        return data.getLong(HEADER_BYTES + i * RECORD_BYTES + 8);
+    }
+
+    private int weightAt(int i) {
+        return data.getInt(HEADER_BYTES + i * RECORD_BYTES + 16);
+    }
+}
@@ -0,0 +1,146 @@
+package greg.checkers.game;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+// builds an OpeningBook by deep search. for each side, every reply the other side
+// can make is followed for the first plies of the game, while the book side only
+// plays its book moves: the moves sharing the best score, as the search would
+// pick between at random. each gets the same weight.
+// greg.checkers.tools.OpeningBookTool runs it from the command line
+public class OpeningBookBuilder {
+    public interface Listener {
+        // a book position has been searched, the count-th so far
+        void searched(int count);
+    }
+
+    private final int plies;
+    private final int depth;
+    // rules of the build in progress
+    private boolean allowAnyMove;
+    private AlphaBeta search;
+
+    // book moves by position key
+    private final Map<Long, long[]> book = new HashMap<>();
+    // the fewest plies each position has been expanded at, by book side
+    private final Map<Long, Integer> expanded = new HashMap<>();
+    private int searches;
+    private Listener listener;
+
+    public OpeningBookBuilder(int plies, int depth) {
+        this.plies = plies;
+        this.depth = depth;
+    }
+
+    // told about each search as it finishes, or null
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    // add book moves for both sides under one set of rules; a book can hold both
+    public void build(boolean allowAnyMove) {
+        build(allowAnyMove, CheckersGame.BLACK);
+        build(allowAnyMove, CheckersGame.RED);
+    }
+
+    // add book moves for bookSide only, such as the side the computer plays
+    public void build(boolean allowAnyMove, int bookSide) {
+        if (search == null || this.allowAnyMove != allowAnyMove) {
+            this.allowAnyMove = allowAnyMove;
+            search = new AlphaBeta(allowAnyMove, new TranspositionTable(SearchEngine.DEFAULT_TABLE_BYTES * 4));
+        }
+        expand(new Board((CheckersGame)null), CheckersGame.BLACK, bookSide, 0);
+    }
+
+    private void expand(Board board, int turn, int bookSide, int ply) {
+        if (ply >= plies) {
+            return;
+        }
+        long key = OpeningBook.key(board, turn, allowAnyMove);
+        Integer seen = expanded.get(key ^ bookSide);
+        if (seen != null && seen <= ply) {
+            return;
+        }
+        expanded.put(key ^ bookSide, ply);
+
+        MoveList moves = new MoveList();
+        board.generateMoves(turn, allowAnyMove, moves);
+        if (turn == bookSide && moves.size() > 1) {
+            long[] bookMoves = book.get(key);
+            if (bookMoves == null) {
+                bookMoves = bestMoves(board, turn);
+                book.put(key, bookMoves);
+            }
+            moves.clear();
+            for (long move : bookMoves) {
+                moves.add(move);
+            }
+        }
+
+        int oppositeTurn = (turn == CheckersGame.RED) ? CheckersGame.BLACK : CheckersGame.RED;
+        for (int i = 0; i < moves.size(); i++) {
+            Board child = new Board(board);
+            child.makeMove(moves.get(i), null);
+            expand(child, oppositeTurn, bookSide, ply + 1);
+        }
+    }
+
+    private long[] bestMoves(Board board, int turn) {
+        ArrayList<Move> best = search.bestMoves(board, turn, depth);
+        long[] packed = new long[best.size()];
+        int count = 0;
+        MoveList unique = new MoveList();
+        for (Move move : best) {
+            // jumps along different paths to the same squares are one packed move
+            long packedMove = board.packMove(move);
+            if (unique.indexOf(packedMove) < 0) {
+                unique.add(packedMove);
+                packed[count++] = packedMove;
+            }
+        }
+        searches++;
+        if (listener != null) {
+            listener.searched(searches);
+        }
+        return Arrays.copyOf(packed, count);
+    }
+
+    // number of positions with book moves
+    public int size() {
+        return book.size();
+    }
+
+    // write the book, returning the number of moves written
+    public int write(File file) throws IOException {
+        Long[] keys = book.keySet().toArray(new Long[book.size()]);
+        Arrays.sort(keys);
+        int count = 0;
+        for (long[] moves : book.values()) {
+            count += moves.length;
+        }
+
+        DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+        try {
+            output.writeInt(OpeningBook.MAGIC);
+            output.writeInt(OpeningBook.VERSION);
+            output.writeInt(count);
+            for (Long key : keys) {
+                for (long move : book.get(key)) {
+                    output.writeLong(key);
+                    output.writeLong(move);
+                    output.writeInt(1);
+                }
+            }
+        } finally {
+            output.close();
+        }
+        return count;
+    }
+}
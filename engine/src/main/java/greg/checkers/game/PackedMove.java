@@ -0,0 +1,38 @@
+package greg.checkers.game;
+
+// a move packed into one long: the mask of captured squares in bits 0-31,
+// the start square in bits 32-36, the end square in bits 37-41 and
+// whether a man is crowned in bit 42. squares are Board.square indexes.
+// Board.packMove and Board.unpackMove convert to and from Move
+public final class PackedMove {
+    private static final long CROWNS = 1L << 42;
+
+    private PackedMove() {
+    }
+
+    public static long pack(int from, int to, int captured, boolean crowns) {
+        long move = (captured & 0xFFFFFFFFL) | ((long)from << 32) | ((long)to << 37);
+        return crowns ? move | CROWNS : move;
+    }
+
+    public static int from(long move) {
+        return (int)(move >>> 32) & 0x1F;
+    }
+
+    public static int to(long move) {
+        return (int)(move >>> 37) & 0x1F;
+    }
+
+    // mask of the squares of captured pieces
+    public static int captured(long move) {
+        return (int)move;
+    }
+
+    public static int captureCount(long move) {
+        return Integer.bitCount((int)move);
+    }
+
+    public static boolean crowns(long move) {
+        return (move & CROWNS) != 0;
+    }
+}
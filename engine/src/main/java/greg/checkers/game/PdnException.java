@@ -0,0 +1,13 @@
+package greg.checkers.game;
+
+import java.io.IOException;
+
+// a game in a PDN archive that cannot be read. the reader has skipped past it,
+// so reading can go on with the next game
+public class PdnException extends IOException {
+    private static final long serialVersionUID = 1L;
+
+    public PdnException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,84 @@
+package greg.checkers.game;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// one game of a Portable Draughts Notation archive: its tags, the position it
+// starts from and its moves. PDN numbers the playable squares 1 to 32 row by
+// row from black's back row, and calls red white. black moves first
+public class PdnGame {
+    // result of a game that has not ended
+    public static final String UNFINISHED = "*";
+
+    private final Map<String, String> tags;
+    private final Board start;
+    private final int startTurn;
+    private final List<Move> moves;
+    private final String result;
+
+    // start is copied; startTurn is CheckersGame.BLACK or RED
+    public PdnGame(Map<String, String> tags, Board start, int startTurn, List<Move> moves, String result) {
+        this.tags = Collections.unmodifiableMap(new LinkedHashMap<>(tags));
+        this.start = new Board(start);
+        this.startTurn = startTurn;
+        this.moves = Collections.unmodifiableList(new ArrayList<>(moves));
+        this.result = result;
+    }
+
+    // value of a tag, or null
+    public String getTag(String name) {
+        return tags.get(name);
+    }
+
+    public Map<String, String> getTags() {
+        return tags;
+    }
+
+    // a copy of the position before the first move
+    public Board getStartBoard() {
+        return new Board(start);
+    }
+
+    public int getStartTurn() {
+        return startTurn;
+    }
+
+    public List<Move> getMoves() {
+        return moves;
+    }
+
+    // result as written, such as 1-0, 0-1, 1/2-1/2, 2-0, 0-2, 1-1 or *
+    public String getResult() {
+        return result;
+    }
+
+    // the position after the first plies moves
+    public Board getBoardAfter(int plies) {
+        Board board = new Board(start);
+        for (int i = 0; i < plies; i++) {
+            board.makeMove(moves.get(i));
+        }
+        return board;
+    }
+
+    // Board square of a PDN square number, or -1 if it is not one
+    public static int toSquare(int number) {
+        if (number < 1 || number > Board.SQUARES) {
+            return -1;
+        }
+        int row = (number - 1) / 4;
+        int column = (number - 1) % 4;
+        int x = (row % 2 == 0) ? 6 - 2 * column : 7 - 2 * column;
+        return Board.square(x, 7 - row);
+    }
+
+    // PDN square number of a playable square
+    public static int toNumber(int x, int y) {
+        int row = 7 - y;
+        int column = (row % 2 == 0) ? (6 - x) / 2 : (7 - x) / 2;
+        return row * 4 + column + 1;
+    }
+}
@@ -0,0 +1,425 @@
+package greg.checkers.game;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+
+// reads the games of a PDN archive one at a time from a stream, so archives of
+// any size can be read in little memory. each move is checked against the
+// legal moves of its position and turned into a Move with its full jump path.
+// comments, variations and move annotations are skipped; a FEN tag sets up the
+// start position. text is read as ISO-8859-1
+public class PdnReader {
+    // longest token kept; longer ones are skipped as errors
+    private static final int MAX_TOKEN = 64;
+    // squares in one move: a start and up to 12 landings
+    private static final int MAX_SQUARES = 13;
+
+    private final InputStream input;
+    private final boolean allowAnyMove;
+    private final byte[] buffer = new byte[64 * 1024];
+    private int position;
+    private int limit;
+    private int line = 1;
+
+    private final char[] token = new char[MAX_TOKEN];
+    private int tokenLength;
+    private final int[] squares = new int[MAX_SQUARES];
+    private final StringBuilder text = new StringBuilder();
+    private final MoveList legal = new MoveList();
+    private int gamesRead;
+
+    public PdnReader(InputStream input) {
+        this(input, false);
+    }
+
+    // moves are checked against the any-move rules if allowAnyMove
+    public PdnReader(InputStream input, boolean allowAnyMove) {
+        this.input = input;
+        this.allowAnyMove = allowAnyMove;
+    }
+
+    // games returned or rejected so far
+    public int getGamesRead() {
+        return gamesRead;
+    }
+
+    public void close() throws IOException {
+        input.close();
+    }
+
+    private int peek() throws IOException {
+        if (position == limit) {
+            limit = input.read(buffer, 0, buffer.length);
+            position = 0;
+            if (limit <= 0) {
+                limit = 0;
+                return -1;
+            }
+        }
+        return buffer[position] & 0xFF;
+    }
+
+    private int read() throws IOException {
+        int c = peek();
+        if (c >= 0) {
+            position++;
+            if (c == '\n') {
+                line++;
+            }
+        }
+        return c;
+    }
+
+    private static boolean isSpace(int c) {
+        return c == ' ' || c == '\n' || c == '\r' || c == '\t' || c == '\f';
+    }
+
+    private static boolean isDelimiter(int c) {
+        return isSpace(c) || c == '[' || c == ']' || c == '{' || c == '}' || c == '(' || c == ')' || c == ';';
+    }
+
+    // skip spaces, comments and variations, returning the next character without reading it
+    private int skipSpace() throws IOException {
+        while (true) {
+            int c = peek();
+            if (isSpace(c)) {
+                read();
+            } else if (c == '{') {
+                while (c >= 0 && c != '}') {
+                    c = read();
+                }
+            } else if (c == ';') {
+                while (c >= 0 && c != '\n') {
+                    c = read();
+                }
+            } else if (c == '(') {
+                int depth = 0;
+                do {
+                    c = read();
+                    if (c == '(') {
+                        depth++;
+                    } else if (c == ')') {
+                        depth--;
+                    } else if (c == '{') {
+                        while (c >= 0 && c != '}') {
+                            c = read();
+                        }
+                    }
+                } while (c >= 0 && depth > 0);
+            } else if (c == ')' || c == '}' || c == ']') {
+                // stray closing bracket
+                read();
+            } else {
+                return c;
+            }
+        }
+    }
+
+    // read the rest of a [name "value"] tag
+    private void readTag(LinkedHashMap<String, String> tags) throws IOException {
+        text.setLength(0);
+        int c = skipSpace();
+        while (c >= 0 && !isSpace(c) && c != '"' && c != ']') {
+            text.append((char)read());
+            c = peek();
+        }
+        String name = text.toString();
+        text.setLength(0);
+        while (c >= 0 && c != '"' && c != ']') {
+            read();
+            c = peek();
+        }
+        if (c == '"') {
+            read();
+            for (c = read(); c >= 0 && c != '"'; c = read()) {
+                if (c == '\\') {
+                    c = read();
+                }
+                if (c >= 0) {
+                    text.append((char)c);
+                }
+            }
+            c = peek();
+        }
+        while (c >= 0 && c != ']') {
+            read();
+            c = peek();
+        }
+        read();
+        tags.put(name, text.toString());
+    }
+
+    private void readToken() throws IOException {
+        tokenLength = 0;
+        for (int c = peek(); c >= 0 && !isDelimiter(c); c = peek()) {
+            read();
+            if (tokenLength < MAX_TOKEN) {
+                token[tokenLength] = (char)c;
+            }
+            tokenLength++;
+        }
+    }
+
+    private boolean tokenIs(String value) {
+        if (tokenLength != value.length()) {
+            return false;
+        }
+        for (int i = 0; i < tokenLength; i++) {
+            if (token[i] != value.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean isResult() {
+        return tokenIs("1-0") || tokenIs("0-1") || tokenIs("1/2-1/2") || tokenIs("*")
+                || tokenIs("2-0") || tokenIs("0-2") || tokenIs("1-1") || tokenIs("0-0");
+    }
+
+    // the next game, or null at the end of the stream. a game that cannot be read
+    // throws PdnException once all of its text has been read past
+    public PdnGame next() throws IOException {
+        LinkedHashMap<String, String> tags = new LinkedHashMap<>();
+        ArrayList<Move> moves = new ArrayList<>();
+        Board board = null;
+        Board start = null;
+        int startTurn = CheckersGame.BLACK;
+        int turn = CheckersGame.BLACK;
+        String result = null;
+        String error = null;
+        boolean started = false;
+        int startLine = line;
+
+        while (true) {
+            int c = skipSpace();
+            if (c < 0) {
+                break;
+            }
+            if (c == '[') {
+                // tags after moves belong to the next game
+                if (board != null) {
+                    break;
+                }
+                read();
+                if (!started) {
+                    started = true;
+                    startLine = line;
+                }
+                readTag(tags);
+                continue;
+            }
+            if (!started) {
+                started = true;
+                startLine = line;
+            }
+            if (board == null) {
+                String fen = tags.get("FEN");
+                board = new Board((CheckersGame)null);
+                if (fen != null) {
+                    turn = parseFen(fen, board);
+                    if (turn == CheckersGame.NONE) {
+                        error = "bad FEN tag " + fen;
+                        turn = CheckersGame.BLACK;
+                    }
+                }
+                start = new Board(board);
+                startTurn = turn;
+            }
+
+            readToken();
+            if (tokenLength > MAX_TOKEN) {
+                if (error == null) {
+                    error = "token too long on line " + line;
+                }
+                continue;
+            }
+            if (isResult()) {
+                result = new String(token, 0, tokenLength);
+                break;
+            }
+            if (error != null) {
+                // read on to the end of the game
+                continue;
+            }
+            int moveError = readMove(board, turn, moves);
+            if (moveError == 0) {
+                turn = (turn == CheckersGame.RED) ? CheckersGame.BLACK : CheckersGame.RED;
+            } else if (moveError > 0) {
+                error = "illegal move " + new String(token, 0, tokenLength) + " on line " + line;
+            }
+        }
+
+        if (!started) {
+            return null;
+        }
+        gamesRead++;
+        if (error != null) {
+            throw new PdnException("game " + gamesRead + " from line " + startLine + ": " + error);
+        }
+        if (board == null) {
+            board = new Board((CheckersGame)null);
+            start = board;
+        }
+        return new PdnGame(tags, start, startTurn, moves,
+                (result != null) ? result : PdnGame.UNFINISHED);
+    }
+
+    // play the move in the token, returning 0 if it was played, -1 if the token
+    // is a move number or annotation, or 1 if it is not a legal move
+    private int readMove(Board board, int turn, ArrayList<Move> moves) {
+        int i = 0;
+        // a move number, perhaps run together with the move
+        while (i < tokenLength && token[i] >= '0' && token[i] <= '9') {
+            i++;
+        }
+        if (i < tokenLength && token[i] == '.') {
+            while (i < tokenLength && token[i] == '.') {
+                i++;
+            }
+        } else {
+            i = 0;
+        }
+        if (i == tokenLength) {
+            return -1;
+        }
+        // squares separated by - or x, then annotations such as ! or ?
+        int count = 0;
+        boolean capture = false;
+        while (i < tokenLength) {
+            if (token[i] < '0' || token[i] > '9') {
+                return (count == 0) ? -1 : 1;
+            }
+            int number = 0;
+            while (i < tokenLength && token[i] >= '0' && token[i] <= '9') {
+                number = number * 10 + token[i] - '0';
+                i++;
+            }
+            int square = PdnGame.toSquare(number);
+            if (square < 0 || count == MAX_SQUARES) {
+                return 1;
+            }
+            squares[count++] = square;
+            if (i < tokenLength && (token[i] == '-' || token[i] == 'x' || token[i] == ':')) {
+                capture |= token[i] == 'x' || token[i] == ':';
+                i++;
+            } else {
+                break;
+            }
+        }
+        if (count < 2) {
+            return 1;
+        }
+
+        // the squares given in between the start and the end pin down the jumps
+        int from = squares[0];
+        int to = squares[count - 1];
+        int captured = 0;
+        if (count > 2) {
+            for (int k = 1; k < count; k++) {
+                int x = (Board.squareX(squares[k - 1]) + Board.squareX(squares[k])) / 2;
+                int y = (Board.squareY(squares[k - 1]) + Board.squareY(squares[k])) / 2;
+                captured |= 1 << Board.square(x, y);
+            }
+        }
+        legal.clear();
+        board.generateMoves(turn, allowAnyMove, legal);
+        for (int k = 0; k < legal.size(); k++) {
+            long move = legal.get(k);
+            if (PackedMove.from(move) == from && PackedMove.to(move) == to
+                    && (count == 2 || PackedMove.captured(move) == captured)
+                    && (!capture || PackedMove.captured(move) != 0)) {
+                if (count > 2) {
+                    // a king can take the same pieces along different paths; keep the one given
+                    Move path = new Move(Board.squareX(from), Board.squareY(from));
+                    for (int j = 1; j < count; j++) {
+                        path.add(Board.squareX(squares[j]), Board.squareY(squares[j]));
+                    }
+                    moves.add(path);
+                } else {
+                    moves.add(board.unpackMove(move));
+                }
+                board.makeMove(move, null);
+                return 0;
+            }
+        }
+        return 1;
+    }
+
+    // set up board from a FEN tag value such as B:W21,22,K30:B1-12,
+    // returning the side to move, or CheckersGame.NONE if it cannot be read
+    static int parseFen(String fen, Board board) {
+        int black = 0;
+        int red = 0;
+        int kings = 0;
+        String[] parts = fen.trim().split(":");
+        if (parts.length < 1 || parts[0].length() == 0) {
+            return CheckersGame.NONE;
+        }
+        int turn = side(parts[0].charAt(0));
+        if (turn == CheckersGame.NONE) {
+            return CheckersGame.NONE;
+        }
+        for (int p = 1; p < parts.length; p++) {
+            String part = parts[p].trim();
+            if (part.length() == 0) {
+                continue;
+            }
+            int color = side(part.charAt(0));
+            if (color == CheckersGame.NONE) {
+                return CheckersGame.NONE;
+            }
+            String list = part.substring(1);
+            if (list.endsWith(".")) {
+                list = list.substring(0, list.length() - 1);
+            }
+            for (String item : list.split(",")) {
+                item = item.trim();
+                if (item.length() == 0) {
+                    continue;
+                }
+                boolean king = item.charAt(0) == 'K';
+                if (king) {
+                    item = item.substring(1);
+                }
+                String[] range = item.split("-");
+                try {
+                    int first = Integer.parseInt(range[0]);
+                    int last = (range.length > 1) ? Integer.parseInt(range[1]) : first;
+                    for (int number = first; number <= last; number++) {
+                        int square = PdnGame.toSquare(number);
+                        if (square < 0) {
+                            return CheckersGame.NONE;
+                        }
+                        if (color == CheckersGame.RED) {
+                            red |= 1 << square;
+                        } else {
+                            black |= 1 << square;
+                        }
+                        if (king) {
+                            kings |= 1 << square;
+                        }
+                    }
+                } catch (NumberFormatException e) {
+                    return CheckersGame.NONE;
+                }
+            }
+        }
+        if ((black & red) != 0) {
+            return CheckersGame.NONE;
+        }
+        board.setPieces(black, red, kings);
+        return turn;
+    }
+
+    private static int side(char c) {
+        if (c == 'B') {
+            return CheckersGame.BLACK;
+        } else if (c == 'W') {
+            return CheckersGame.RED;
+        }
+        return CheckersGame.NONE;
+    }
+}
@@ -0,0 +1,195 @@
+package greg.checkers.game;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Map;
+
+// writes games in PDN to a stream through its own buffer, a move at a time,
+// so long runs of games make little garbage. jumps are written with every
+// square they land on. text is written as ISO-8859-1
+public class PdnWriter {
+    // movetext lines are wrapped before this many characters
+    private static final int LINE_LENGTH = 80;
+
+    private final OutputStream output;
+    private final byte[] buffer = new byte[8 * 1024];
+    private int length;
+    private int column;
+
+    public PdnWriter(OutputStream output) {
+        this.output = output;
+    }
+
+    public void write(PdnGame game) throws IOException {
+        write(game.getTags(), game.getStartBoard(), game.getStartTurn(), game.getMoves(), game.getResult());
+    }
+
+    // the moves made in game since it started, with tags and a result such as 1-0 or *
+    public void write(CheckersGame game, Map<String, String> tags, String result) throws IOException {
+        write(tags, new Board((CheckersGame)null), CheckersGame.BLACK, game.getHistory(), result);
+    }
+
+    // a game from start with startTurn to move. a FEN tag is added for a start
+    // other than the usual one unless tags has one
+    public void write(Map<String, String> tags, Board start, int startTurn, List<Move> moves, String result)
+            throws IOException {
+        for (Map.Entry<String, String> tag : tags.entrySet()) {
+            writeTag(tag.getKey(), tag.getValue());
+        }
+        Board initial = new Board((CheckersGame)null);
+        boolean usualStart = startTurn == CheckersGame.BLACK
+                && start.colorMask(CheckersGame.BLACK) == initial.colorMask(CheckersGame.BLACK)
+                && start.colorMask(CheckersGame.RED) == initial.colorMask(CheckersGame.RED)
+                && start.kingMask() == 0;
+        if (!usualStart && !tags.containsKey("FEN")) {
+            writeFen(start, startTurn);
+        }
+        if (!tags.isEmpty() || !usualStart) {
+            newLine();
+        }
+
+        int number = 1;
+        boolean black = startTurn == CheckersGame.BLACK;
+        for (int i = 0; i < moves.size(); i++) {
+            Move move = moves.get(i);
+            // a move number before each black move, and before a first white one
+            if (black || i == 0) {
+                int width = digits(number) + (black ? 1 : 3) + 1 + moveLength(move);
+                wrap(width);
+                writeNumber(number);
+                writeText(black ? "." : "...");
+                append(' ');
+                writeMove(move);
+            } else {
+                wrap(moveLength(move));
+                writeMove(move);
+            }
+            if (!black) {
+                number++;
+            }
+            black = !black;
+        }
+        wrap(result.length());
+        writeText(result);
+        newLine();
+        newLine();
+    }
+
+    // write everything buffered so far
+    public void flush() throws IOException {
+        output.write(buffer, 0, length);
+        length = 0;
+        output.flush();
+    }
+
+    public void close() throws IOException {
+        flush();
+        output.close();
+    }
+
+    private void append(char c) throws IOException {
+        if (length == buffer.length) {
+            output.write(buffer, 0, length);
+            length = 0;
+        }
+        buffer[length++] = (byte)c;
+        column = (c == '\n') ? 0 : column + 1;
+    }
+
+    private void writeText(String text) throws IOException {
+        for (int i = 0; i < text.length(); i++) {
+            append(text.charAt(i));
+        }
+    }
+
+    private void writeNumber(int number) throws IOException {
+        if (number >= 10) {
+            writeNumber(number / 10);
+        }
+        append((char)('0' + number % 10));
+    }
+
+    private static int digits(int number) {
+        int count = 1;
+        while (number >= 10) {
+            number /= 10;
+            count++;
+        }
+        return count;
+    }
+
+    private void newLine() throws IOException {
+        append('\n');
+    }
+
+    // start a new line if width more characters and a space would not fit on this one
+    private void wrap(int width) throws IOException {
+        if (column > 0) {
+            if (column + 1 + width >= LINE_LENGTH) {
+                newLine();
+            } else {
+                append(' ');
+            }
+        }
+    }
+
+    private void writeTag(String name, String value) throws IOException {
+        append('[');
+        writeText(name);
+        writeText(" \"");
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                append('\\');
+            }
+            append(c);
+        }
+        writeText("\"]");
+        newLine();
+    }
+
+    // a FEN tag such as B:W21,22,K30:B1,2
+    private void writeFen(Board board, int turn) throws IOException {
+        writeText("[FEN \"");
+        append((turn == CheckersGame.BLACK) ? 'B' : 'W');
+        for (int color : new int[]{CheckersGame.RED, CheckersGame.BLACK}) {
+            writeText((color == CheckersGame.RED) ? ":W" : ":B");
+            boolean first = true;
+            for (int number = 1; number <= Board.SQUARES; number++) {
+                int bit = 1 << PdnGame.toSquare(number);
+                if ((board.colorMask(color) & bit) != 0) {
+                    if (!first) {
+                        append(',');
+                    }
+                    first = false;
+                    if ((board.kingMask() & bit) != 0) {
+                        append('K');
+                    }
+                    writeNumber(number);
+                }
+            }
+        }
+        writeText("\"]");
+        newLine();
+    }
+
+    private static int moveLength(Move move) {
+        int width = move.positions.size() - 1;
+        for (Position position : move.positions) {
+            width += digits(PdnGame.toNumber(position.x, position.y));
+        }
+        return width;
+    }
+
+    private void writeMove(Move move) throws IOException {
+        char separator = move.captures.isEmpty() ? '-' : 'x';
+        for (int i = 0; i < move.positions.size(); i++) {
+            if (i > 0) {
+                append(separator);
+            }
+            Position position = move.positions.get(i);
+            writeNumber(PdnGame.toNumber(position.x, position.y));
+        }
+    }
+}
@@ -28,4 +28,9 @@ public class Piece {
     public void makeKing() {
         _isKing = true;
     }
+
+    // only for taking back a move
+    void unmakeKing() {
+        _isKing = false;
+    }
 }
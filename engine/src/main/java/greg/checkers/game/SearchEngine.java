@@ -0,0 +1,336 @@
+package greg.checkers.game;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+// entry point to the AI for any front end: owns the transposition table and
+// worker threads that its searches share. one search should run at a time,
+// apart from pondering, which gives way to it
+public class SearchEngine {
+    public static final int DEFAULT_TABLE_BYTES = 4 * 1024 * 1024;
+
+    private final TranspositionTable table;
+    private final ExecutorService pool;
+    private volatile Tablebase tablebase;
+    // the search newSearch made last, for its statistics
+    private volatile AlphaBeta lastSearch;
+    // the searches keptSearch hands out, for the standard and any-move rules
+    private final AlphaBeta[] keptSearches = new AlphaBeta[2];
+    // results of earlier sessions, or null
+    private volatile AnalysisCache analysisCache;
+
+    // pondering searches the replies to a position on one low priority thread
+    // while the opponent thinks. finished results are kept by position key,
+    // and every search fills the shared table either way
+    private final ExecutorService ponderThread;
+    private final HashMap<Long, Pondered> pondered = new HashMap<>();
+    // bumped to end the current pondering
+    private int ponderId;
+    private AlphaBeta ponderSearch;
+
+    private static class Pondered {
+        final int depth;
+        final ArrayList<Move> bestMoves;
+
+        Pondered(int depth, ArrayList<Move> bestMoves) {
+            this.depth = depth;
+            this.bestMoves = bestMoves;
+        }
+    }
+
+    // an engine using every core and the default table size
+    public SearchEngine() {
+        this(DEFAULT_TABLE_BYTES, Runtime.getRuntime().availableProcessors());
+    }
+
+    // root moves are split across threads when there is more than one
+    public SearchEngine(int tableBytes, int threads) {
+        table = new TranspositionTable(tableBytes);
+        if (threads > 1) {
+            pool = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "SearchEngine worker");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        } else {
+            pool = null;
+        }
+        ponderThread = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "SearchEngine ponder");
+                thread.setDaemon(true);
+                thread.setPriority(Thread.MIN_PRIORITY);
+                return thread;
+            }
+        });
+    }
+
+    // a search using this engine's table and threads. keep it to stop() it from another thread
+    public AlphaBeta newSearch(boolean allowAnyMove) {
+        AlphaBeta search = newSearch(allowAnyMove, pool);
+        lastSearch = search;
+        return search;
+    }
+
+    // the same search for the rules every time, with its buffers, killers and
+    // history kept from move to move, ready to run again even if it was stopped.
+    // for one thread at a time; keep it to stop() it from another thread
+    public synchronized AlphaBeta keptSearch(boolean allowAnyMove) {
+        int rules = allowAnyMove ? 1 : 0;
+        if (keptSearches[rules] == null) {
+            keptSearches[rules] = newSearch(allowAnyMove, pool);
+        }
+        AlphaBeta search = keptSearches[rules];
+        search.clearStop();
+        lastSearch = search;
+        return search;
+    }
+
+    // statistics of the last search made by newSearch, keptSearch, bestMoves or chooseMove,
+    // leaving out pondering; null before the first one
+    public SearchStats getLastStats() {
+        AlphaBeta search = lastSearch;
+        return (search == null) ? null : search.getStats();
+    }
+
+    private AlphaBeta newSearch(boolean allowAnyMove, ExecutorService pool) {
+        AlphaBeta search = new AlphaBeta(allowAnyMove, table, pool);
+        search.setTablebase(tablebase);
+        return search;
+    }
+
+    private static long ponderKey(Board board, int turn, boolean allowAnyMove) {
+        long key = board.getHash(turn);
+        return allowAnyMove ? key ^ Board.ANY_MOVE_KEY : key;
+    }
+
+    // start searching every reply to the position with turn to move, the likeliest
+    // first, up to maxDepth each. replaces any earlier pondering and its results.
+    // the board is copied, so the caller may go on using it
+    public synchronized void ponder(Board board, final int turn, final boolean allowAnyMove,
+                                    final int maxDepth) {
+        stopPondering();
+        pondered.clear();
+        final int id = ponderId;
+        final Board position = new Board(board);
+        ponderThread.execute(new Runnable() {
+            @Override
+            public void run() {
+                ponderReplies(id, position, turn, allowAnyMove, maxDepth);
+            }
+        });
+    }
+
+    // end the current pondering without waiting for it; its search stops at the next node
+    public synchronized void stopPondering() {
+        ponderId++;
+        if (ponderSearch != null) {
+            ponderSearch.stop();
+            ponderSearch = null;
+        }
+    }
+
+    // the best moves pondering found for the position with turn to move,
+    // searched to at least maxDepth, or null if it did not get there
+    public synchronized ArrayList<Move> getPonderedMoves(Board board, int turn, boolean allowAnyMove,
+                                                         int maxDepth) {
+        Pondered result = pondered.get(ponderKey(board, turn, allowAnyMove));
+        if (result == null || result.depth < maxDepth) {
+            return null;
+        }
+        return new ArrayList<>(result.bestMoves);
+    }
+
+    // one of the pondered best moves picked at random, or null if there are none
+    public Move choosePonderedMove(Board board, int turn, boolean allowAnyMove, int maxDepth) {
+        ArrayList<Move> bestMoves = getPonderedMoves(board, turn, allowAnyMove, maxDepth);
+        if (bestMoves == null || bestMoves.size() == 0) {
+            return null;
+        }
+        return bestMoves.get((int)(Math.random() * bestMoves.size()));
+    }
+
+    // the search for pondering id, or null once it has been stopped
+    private synchronized AlphaBeta startPonderSearch(int id, boolean allowAnyMove) {
+        if (id != ponderId) {
+            return null;
+        }
+        ponderSearch = newSearch(allowAnyMove, null);
+        return ponderSearch;
+    }
+
+    private void ponderReplies(int id, Board board, int turn, boolean allowAnyMove, int maxDepth) {
+        int oppositeTurn = (turn == CheckersGame.RED) ? CheckersGame.BLACK : CheckersGame.RED;
+        MoveList replies = new MoveList();
+        board.generateMoves(turn, allowAnyMove, replies);
+
+        // the moves turn would play itself go first
+        AlphaBeta search = startPonderSearch(id, allowAnyMove);
+        if (search == null) {
+            return;
+        }
+        int front = 0;
+        for (Move likely : search.bestMoves(board, turn, Math.min(maxDepth, 3))) {
+            int index = replies.indexOf(board.packMove(likely));
+            if (index >= front) {
+                replies.swap(front++, index);
+            }
+        }
+
+        for (int i = 0; i < replies.size(); i++) {
+            Board child = new Board(board);
+            child.makeMove(replies.get(i), null);
+            search = startPonderSearch(id, allowAnyMove);
+            if (search == null) {
+                return;
+            }
+            ArrayList<Move> bestMoves = search.bestMoves(child, oppositeTurn, maxDepth);
+            synchronized (this) {
+                if (search.isStopped()) {
+                    return;
+                }
+                pondered.put(ponderKey(child, oppositeTurn, allowAnyMove), new Pondered(maxDepth, bestMoves));
+            }
+        }
+    }
+
+    // all moves sharing the best score, searching up to maxDepth or for millis (0 for no limit)
+    public ArrayList<Move> bestMoves(Board board, int turn, boolean allowAnyMove, int maxDepth, long millis) {
+        return newSearch(allowAnyMove).bestMoves(board, turn, maxDepth, millis);
+    }
+
+    // one of the best moves picked at random, or null if turn has no moves.
+    // uses and fills the analysis cache when there is one
+    public Move chooseMove(Board board, int turn, boolean allowAnyMove, int maxDepth, long millis) {
+        ArrayList<Move> bestMoves = getCachedMoves(board, turn, allowAnyMove, maxDepth);
+        if (bestMoves == null) {
+            AlphaBeta search = newSearch(allowAnyMove);
+            bestMoves = search.bestMoves(board, turn, maxDepth, millis);
+            storeResult(board, turn, allowAnyMove, search, bestMoves);
+        }
+        if (bestMoves.size() == 0) {
+            return null;
+        }
+        return bestMoves.get((int)(Math.random() * bestMoves.size()));
+    }
+
+    // forget results from the previous game
+    public void newGame() {
+        clearPondered();
+        clearKeptSearches();
+        table.clear();
+    }
+
+    // endgame results for later searches, or null for none
+    public void setTablebase(Tablebase tablebase) {
+        this.tablebase = tablebase;
+        // scores stored without it no longer match
+        clearPondered();
+        clearKeptSearches();
+        table.clear();
+    }
+
+    // search results to keep between sessions, or null for none. results are
+    // stored with their depth only, so a cache should be used with one tablebase
+    // and quiescence setting
+    public void setAnalysisCache(AnalysisCache analysisCache) {
+        this.analysisCache = analysisCache;
+    }
+
+    public AnalysisCache getAnalysisCache() {
+        return analysisCache;
+    }
+
+    // the stored best moves for the position if it was searched to at least maxDepth, or null
+    public ArrayList<Move> getCachedMoves(Board board, int turn, boolean allowAnyMove, int maxDepth) {
+        AnalysisCache cache = analysisCache;
+        if (cache == null) {
+            return null;
+        }
+        AnalysisCache.Analysis analysis = cache.get(board, turn, allowAnyMove);
+        if (analysis == null || analysis.getDepth() < maxDepth) {
+            return null;
+        }
+        // a different position with the same key could have other moves, so the
+        // stored move has to be legal and among the best, and the mask has to fit
+        MoveList legal = new MoveList();
+        board.generateMoves(turn, allowAnyMove, legal);
+        long mask = analysis.getBestMask();
+        int index = legal.indexOf(analysis.getMove());
+        if (index < 0 || (index < 64 && (mask & (1L << index)) == 0)
+                || (legal.size() < 64 && (mask >>> legal.size()) != 0)) {
+            return null;
+        }
+        ArrayList<Move> bestMoves = new ArrayList<>();
+        for (int i = 0; i < legal.size() && i < 64; i++) {
+            if ((mask & (1L << i)) != 0) {
+                bestMoves.add(board.unpackMove(legal.get(i)));
+            }
+        }
+        if (bestMoves.isEmpty()) {
+            bestMoves.add(board.unpackMove(analysis.getMove()));
+        }
+        return bestMoves;
+    }
+
+    // one of the stored best moves picked at random, or null if there are none
+    public Move chooseCachedMove(Board board, int turn, boolean allowAnyMove, int maxDepth) {
+        ArrayList<Move> bestMoves = getCachedMoves(board, turn, allowAnyMove, maxDepth);
+        if (bestMoves == null || bestMoves.size() == 0) {
+            return null;
+        }
+        return bestMoves.get((int)(Math.random() * bestMoves.size()));
+    }
+
+    // store bestMoves, found by search for the position, in the analysis cache if there is one.
+    // all of them are kept, so a later hit still picks among them at random
+    public void storeResult(Board board, int turn, boolean allowAnyMove, AlphaBeta search, List<Move> bestMoves) {
+        AnalysisCache cache = analysisCache;
+        int depth = search.getStats().getDepth();
+        if (cache == null || bestMoves.isEmpty() || depth <= 0) {
+            return;
+        }
+        MoveList legal = new MoveList();
+        board.generateMoves(turn, allowAnyMove, legal);
+        long mask = 0;
+        for (Move move : bestMoves) {
+            int index = legal.indexOf(board.packMove(move));
+            if (index >= 0 && index < 64) {
+                mask |= 1L << index;
+            }
+        }
+        cache.put(board, turn, allowAnyMove, board.packMove(bestMoves.get(0)), mask, search.getBestScore(), depth);
+    }
+
+    // the next keptSearch starts afresh. a search already handed out carries on
+    private synchronized void clearKeptSearches() {
+        keptSearches[0] = null;
+        keptSearches[1] = null;
+    }
+
+    private synchronized void clearPondered() {
+        stopPondering();
+        pondered.clear();
+    }
+
+    public TranspositionTable getTable() {
+        return table;
+    }
+
+    // stop the worker threads; the engine is unusable afterwards
+    public void shutdown() {
+        stopPondering();
+        ponderThread.shutdownNow();
+        if (pool != null) {
+            pool.shutdownNow();
+        }
+    }
+}
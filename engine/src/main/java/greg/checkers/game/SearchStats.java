@@ -0,0 +1,132 @@
+package greg.checkers.game;
+
+// counters of the work done by one search. each search thread fills its own
+// without locking and they are added up when the thread finishes; callers
+// get a copy from AlphaBeta.getStats() or SearchEngine.getLastStats()
+public class SearchStats {
+    // positions searched, not counting the quiescence search
+    long nodes;
+    long quiescenceNodes;
+    // leaves scored by the evaluation
+    long evaluations;
+    // nodes whose moves were searched, and the moves searched at them
+    long expandedNodes;
+    long movesSearched;
+    // nodes that were cut off, and those cut off by the first move searched
+    long cutoffs;
+    long firstMoveCutoffs;
+    // transposition table lookups, and those that found the position
+    long tableProbes;
+    long tableHits;
+    // leaves whose quiescence search ran out of nodes
+    long quiescenceLimitHits;
+    // deepest quiescence ply reached below a leaf
+    int quiescenceDepth;
+    // deepest iteration that finished, and the time the search took
+    int depth;
+    long elapsedNanos;
+
+    SearchStats() {
+    }
+
+    SearchStats(SearchStats other) {
+        add(other);
+        depth = other.depth;
+        elapsedNanos = other.elapsedNanos;
+    }
+
+    // count the work of a worker thread
+    void add(SearchStats other) {
+        nodes += other.nodes;
+        quiescenceNodes += other.quiescenceNodes;
+        evaluations += other.evaluations;
+        expandedNodes += other.expandedNodes;
+        movesSearched += other.movesSearched;
+        cutoffs += other.cutoffs;
+        firstMoveCutoffs += other.firstMoveCutoffs;
+        tableProbes += other.tableProbes;
+        tableHits += other.tableHits;
+        quiescenceLimitHits += other.quiescenceLimitHits;
+        quiescenceDepth = Math.max(quiescenceDepth, other.quiescenceDepth);
+    }
+
+    public long getNodes() {
+        return nodes;
+    }
+
+    public long getQuiescenceNodes() {
+        return quiescenceNodes;
+    }
+
+    public long getEvaluations() {
+        return evaluations;
+    }
+
+    public long getCutoffs() {
+        return cutoffs;
+    }
+
+    public long getFirstMoveCutoffs() {
+        return firstMoveCutoffs;
+    }
+
+    // share of cutoffs made by the first move searched; the closer to 1, the better the ordering
+    public double getFirstMoveCutoffRate() {
+        return (cutoffs == 0) ? 0 : (double)firstMoveCutoffs / cutoffs;
+    }
+
+    public long getTableProbes() {
+        return tableProbes;
+    }
+
+    public long getTableHits() {
+        return tableHits;
+    }
+
+    // share of table lookups that found the position, 0 without a table
+    public double getTableHitRate() {
+        return (tableProbes == 0) ? 0 : (double)tableHits / tableProbes;
+    }
+
+    public long getQuiescenceLimitHits() {
+        return quiescenceLimitHits;
+    }
+
+    public int getQuiescenceDepth() {
+        return quiescenceDepth;
+    }
+
+    // moves searched per node whose moves were searched
+    public double getBranchingFactor() {
+        return (expandedNodes == 0) ? 0 : (double)movesSearched / expandedNodes;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedNanos / 1000000;
+    }
+
+    // nodes of both searches per second
+    public long getNodesPerSecond() {
+        return (elapsedNanos == 0) ? 0 : (nodes + quiescenceNodes) * 1000000000L / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "depth " + depth
+                + ", " + nodes + " nodes + " + quiescenceNodes + " quiescence"
+                + ", " + evaluations + " evaluations"
+                + ", " + getNodesPerSecond() + " nodes/s"
+                + ", branching " + String.format("%.2f", getBranchingFactor())
+                + ", " + cutoffs + " cutoffs (" + Math.round(getFirstMoveCutoffRate() * 100) + "% first move)"
+                + ", table hits " + Math.round(getTableHitRate() * 100) + "%"
+                + ", " + getElapsedMillis() + " ms";
+    }
+}
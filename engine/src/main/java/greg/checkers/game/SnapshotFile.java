@@ -0,0 +1,145 @@
+package greg.checkers.game;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+// one snapshot kept in a file and written on a background thread. only the
+// newest of the snapshots saved while a write is going on is written next.
+// each write goes to a temporary file that is synced and renamed over the
+// old one, so a crash leaves either the old snapshot or the new one
+public class SnapshotFile {
+    private final File file;
+    private final File temporary;
+    private final ExecutorService writer;
+    // the snapshot waiting to be written, or null
+    private byte[] pending;
+    // the last failure to write a snapshot, until it is taken
+    private volatile IOException lastError;
+
+    private final Runnable writePending = new Runnable() {
+        @Override
+        public void run() {
+            byte[] data;
+            synchronized (SnapshotFile.this) {
+                data = pending;
+                pending = null;
+            }
+            if (data == null) {
+                return;
+            }
+            try {
+                write(data);
+            } catch (IOException e) {
+                // the previous snapshot is still there
+                lastError = e;
+            }
+        }
+    };
+
+    public SnapshotFile(File file) {
+        this.file = file;
+        temporary = new File(file.getPath() + ".tmp");
+        writer = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "SnapshotFile writer");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    // the last snapshot written, or null if there is none
+    public byte[] read() throws IOException {
+        if (!file.exists()) {
+            return null;
+        }
+        FileInputStream input = new FileInputStream(file);
+        try {
+            byte[] data = new byte[(int)file.length()];
+            int length = 0;
+            while (length < data.length) {
+                int read = input.read(data, length, data.length - length);
+                if (read < 0) {
+                    throw new IOException("snapshot shorter than its file");
+                }
+                length += read;
+            }
+            return data;
+        } finally {
+            input.close();
+        }
+    }
+
+    // write data in the background, replacing any snapshot not yet written
+    public void save(byte[] data) {
+        boolean queued;
+        synchronized (this) {
+            queued = pending != null;
+            pending = data;
+        }
+        if (!queued) {
+            writer.execute(writePending);
+        }
+    }
+
+    // the last failure to write a snapshot since the previous call, or null
+    public IOException takeLastError() {
+        IOException error = lastError;
+        lastError = null;
+        return error;
+    }
+
+    // remove the snapshot, after any write already started
+    public void delete() {
+        synchronized (this) {
+            pending = null;
+        }
+        writer.execute(new Runnable() {
+            @Override
+            public void run() {
+                file.delete();
+            }
+        });
+    }
+
+    // wait up to millis for the snapshots saved so far to be written
+    public boolean flush(long millis) throws InterruptedException {
+        Future<?> written = writer.submit(new Runnable() {
+            @Override
+            public void run() {
+            }
+        });
+        try {
+            written.get(millis, TimeUnit.MILLISECONDS);
+            return true;
+        } catch (ExecutionException e) {
+            return false;
+        } catch (TimeoutException e) {
+            return false;
+        }
+    }
+
+    private void write(byte[] data) throws IOException {
+        FileOutputStream output = new FileOutputStream(temporary);
+        try {
+            output.write(data);
+            output.flush();
+            output.getFD().sync();
+        } finally {
+            output.close();
+        }
+        if (!temporary.renameTo(file)) {
+            throw new IOException("cannot replace " + file);
+        }
+    }
+}
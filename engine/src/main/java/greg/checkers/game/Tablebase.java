@@ -0,0 +1,295 @@
+package greg.checkers.game;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+// read-only endgame database made by TablebaseGenerator. the file is memory
+// mapped, so probing touches only the pages it needs, and each thread keeps
+// just a few recently used blocks unpacked on the heap.
+//
+// every position with up to maxPieces pieces has one value byte: 0 for a draw,
+// n > 0 when the side to move wins in n plies, -n - 1 when it loses in n plies.
+// positions are grouped by material (black men, black kings, red men, red kings),
+// numbered within a group by where each kind of piece stands, black to move
+// first and then red to move, and split into blocks of BLOCK_SIZE values.
+// a block is deflated, or stored as plain value bytes when that is no bigger.
+//
+// layout: header, then the first index of each material group (a long each,
+// -1 when the group is not stored), then the offset of each block (an int each,
+// plus one for the end), then the block data
+public class Tablebase {
+    static final int MAGIC = 0x434B5442;
+    static final int VERSION = 1;
+    static final int BLOCK_SIZE = 4096;
+    static final int HEADER_BYTES = 24;
+    // set in the offset of a block stored as plain value bytes
+    static final int RAW_BLOCK = 0x80000000;
+    // unpacked blocks kept by each probing thread, a power of two
+    private static final int CACHED_BLOCKS = 32;
+
+    // probe result for positions the tablebase does not cover
+    public static final int UNKNOWN = Integer.MIN_VALUE;
+
+    // binomial coefficients for numbering sets of squares
+    private static final long[][] CHOOSE = new long[Board.SQUARES + 1][Board.SQUARES + 1];
+
+    static {
+        for (int n = 0; n <= Board.SQUARES; n++) {
+            CHOOSE[n][0] = 1;
+            for (int k = 1; k <= n; k++) {
+                CHOOSE[n][k] = CHOOSE[n - 1][k - 1] + CHOOSE[n - 1][k];
+            }
+        }
+    }
+
+    private final ByteBuffer data;
+    private final int maxPieces;
+    private final boolean allowAnyMove;
+    private final long[] groupStart;
+    private final int offsetsStart;
+    private final int blocksStart;
+
+    // inflater and unpacked blocks of one thread
+    private class Reader {
+        final ByteBuffer input = data.duplicate();
+        final Inflater inflater = new Inflater();
+        byte[] packed = new byte[BLOCK_SIZE];
+        final int[] cachedBlock = new int[CACHED_BLOCKS];
+        final byte[][] cache = new byte[CACHED_BLOCKS][BLOCK_SIZE];
+
+        Reader() {
+            for (int i = 0; i < CACHED_BLOCKS; i++) {
+                cachedBlock[i] = -1;
+            }
+        }
+
+        byte[] block(int block) {
+            int slot = block & (CACHED_BLOCKS - 1);
+            if (cachedBlock[slot] == block) {
+                return cache[slot];
+            }
+            int offset = data.getInt(offsetsStart + block * 4);
+            int start = offset & ~RAW_BLOCK;
+            int length = (data.getInt(offsetsStart + block * 4 + 4) & ~RAW_BLOCK) - start;
+            input.position(blocksStart + start);
+            if ((offset & RAW_BLOCK) != 0) {
+                input.get(cache[slot], 0, length);
+            } else {
+                if (packed.length < length) {
+                    packed = new byte[length];
+                }
+                input.get(packed, 0, length);
+                inflater.reset();
+                inflater.setInput(packed, 0, length);
+                try {
+                    inflater.inflate(cache[slot]);
+                } catch (DataFormatException e) {
+                    throw new IllegalStateException("corrupt tablebase block " + block, e);
+                }
+            }
+            cachedBlock[slot] = block;
+            return cache[slot];
+        }
+    }
+
+    private final ThreadLocal<Reader> readers = new ThreadLocal<Reader>() {
+        @Override
+        protected Reader initialValue() {
+            return new Reader();
+        }
+    };
+
+    private Tablebase(ByteBuffer data) throws IOException {
+        this.data = data;
+        if (data.capacity() < HEADER_BYTES || data.getInt(0) != MAGIC || data.getInt(4) != VERSION) {
+            throw new IOException("not a tablebase file");
+        }
+        maxPieces = data.getInt(8);
+        allowAnyMove = data.getInt(12) != 0;
+        if (data.getInt(16) != BLOCK_SIZE || maxPieces < 2 || maxPieces > 8) {
+            throw new IOException("unsupported tablebase layout");
+        }
+        int blockCount = data.getInt(20);
+
+        groupStart = new long[groupCount(maxPieces)];
+        int position = HEADER_BYTES;
+        for (int i = 0; i < groupStart.length; i++) {
+            groupStart[i] = data.getLong(position);
+            position += 8;
+        }
+        offsetsStart = position;
+        blocksStart = offsetsStart + (blockCount + 1) * 4;
+        if (blocksStart > data.capacity()) {
+            throw new IOException("truncated tablebase file");
+        }
+    }
+
+    // map a file written by TablebaseGenerator
+    public static Tablebase open(File file) throws IOException {
+        RandomAccessFile input = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = input.getChannel();
+            return new Tablebase(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        } finally {
+            // the mapping stays valid after the file is closed
+            input.close();
+        }
+    }
+
+    public int getMaxPieces() {
+        return maxPieces;
+    }
+
+    // the rules the values were worked out for
+    public boolean allowsAnyMove() {
+        return allowAnyMove;
+    }
+
+    // value of the position with turn to move, or UNKNOWN if it is not covered
+    public int probe(Board board, int turn) {
+        int black = board.colorMask(CheckersGame.BLACK);
+        int red = board.colorMask(CheckersGame.RED);
+        if (black == 0 || red == 0 || Integer.bitCount(black | red) > maxPieces) {
+            return UNKNOWN;
+        }
+        int kings = board.kingMask();
+        int blackMen = Integer.bitCount(black & ~kings);
+        int blackKings = Integer.bitCount(black & kings);
+        int redMen = Integer.bitCount(red & ~kings);
+        int redKings = Integer.bitCount(red & kings);
+        long start = groupStart[group(maxPieces, blackMen, blackKings, redMen, redKings)];
+        if (start < 0) {
+            return UNKNOWN;
+        }
+        long index = start + rank(black, red, kings);
+        if (turn == CheckersGame.RED) {
+            index += placements(blackMen, blackKings, redMen, redKings);
+        }
+
+        return readers.get().block((int)(index / BLOCK_SIZE))[(int)(index % BLOCK_SIZE)];
+    }
+
+    public static boolean isWin(int value) {
+        return value > 0;
+    }
+
+    public static boolean isLoss(int value) {
+        return value < 0 && value != UNKNOWN;
+    }
+
+    // plies to the end of the game for a win or a loss
+    public static int plies(int value) {
+        return (value > 0) ? value : -value - 1;
+    }
+
+    // number of material groups in a file for up to maxPieces pieces
+    static int groupCount(int maxPieces) {
+        int side = maxPieces + 1;
+        return side * side * side * side;
+    }
+
+    static int group(int maxPieces, int blackMen, int blackKings, int redMen, int redKings) {
+        int side = maxPieces + 1;
+        return ((blackMen * side + blackKings) * side + redMen) * side + redKings;
+    }
+
+    // group of the piece counts in {black men, black kings, red men, red kings} order
+    static int group(int maxPieces, int[] counts) {
+        return group(maxPieces, counts[0], counts[1], counts[2], counts[3]);
+    }
+
+    // number of placements of the piece counts
+    static long placements(int blackMen, int blackKings, int redMen, int redKings) {
+        int free = Board.SQUARES;
+        long total = CHOOSE[free][blackMen];
+        free -= blackMen;
+        total *= CHOOSE[free][blackKings];
+        free -= blackKings;
+        return total * CHOOSE[free][redMen] * CHOOSE[free - redMen][redKings];
+    }
+
+    static long placements(int[] counts) {
+        return placements(counts[0], counts[1], counts[2], counts[3]);
+    }
+
+    // number of a placement within its material group: each kind of piece in turn
+    // picks a set of the squares left free by the kinds before it
+    static long rank(int black, int red, int kings) {
+        long rank = rankSet(black & ~kings, 0);
+        int occupied = black & ~kings;
+        rank = rank * CHOOSE[Board.SQUARES - Integer.bitCount(occupied)][Integer.bitCount(black & kings)]
+                + rankSet(black & kings, occupied);
+        occupied = black;
+        rank = rank * CHOOSE[Board.SQUARES - Integer.bitCount(occupied)][Integer.bitCount(red & ~kings)]
+                + rankSet(red & ~kings, occupied);
+        occupied |= red & ~kings;
+        return rank * CHOOSE[Board.SQUARES - Integer.bitCount(occupied)][Integer.bitCount(red & kings)]
+                + rankSet(red & kings, occupied);
+    }
+
+    // the sets of squares of each kind for a placement number, inverse of rank
+    static int[] unrank(int[] counts, long rank) {
+        long[] sizes = new long[counts.length];
+        int free = Board.SQUARES;
+        for (int i = 0; i < counts.length; i++) {
+            sizes[i] = CHOOSE[free][counts[i]];
+            free -= counts[i];
+        }
+        long[] ranks = new long[counts.length];
+        for (int i = counts.length - 1; i >= 0; i--) {
+            ranks[i] = rank % sizes[i];
+            rank /= sizes[i];
+        }
+        int[] sets = new int[counts.length];
+        int occupied = 0;
+        for (int i = 0; i < counts.length; i++) {
+            sets[i] = unrankSet(ranks[i], counts[i], occupied);
+            occupied |= sets[i];
+        }
+        return sets;
+    }
+
+    // combinatorial number of a set among the squares not in occupied
+    private static long rankSet(int set, int occupied) {
+        long rank = 0;
+        int i = 1;
+        while (set != 0) {
+            int sq = Integer.numberOfTrailingZeros(set);
+            int free = sq - Integer.bitCount(occupied & ((1 << sq) - 1));
+            rank += CHOOSE[free][i++];
+            set &= set - 1;
+        }
+        return rank;
+    }
+
+    private static int unrankSet(long rank, int count, int occupied) {
+        int set = 0;
+        int free = Board.SQUARES - Integer.bitCount(occupied);
+        for (int i = count; i > 0; i--) {
+            // largest c with CHOOSE[c][i] <= rank
+            int c = free - 1;
+            while (CHOOSE[c][i] > rank) {
+                c--;
+            }
+            rank -= CHOOSE[c][i];
+            set |= 1 << nthFree(c, occupied);
+            free = c;
+        }
+        return set;
+    }
+
+    // square of the nth free square, counting from 0
+    private static int nthFree(int n, int occupied) {
+        for (int sq = 0; sq < Board.SQUARES; sq++) {
+            if ((occupied & (1 << sq)) == 0 && n-- == 0) {
+                return sq;
+            }
+        }
+        throw new IllegalArgumentException("no free square " + n);
+    }
+}
@@ -0,0 +1,352 @@
+package greg.checkers.game;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.zip.Deflater;
+
+// works out a Tablebase by retrograde analysis: positions where the side to move
+// is stuck are lost, and then pass n finds every position won or lost in n plies,
+// looking only at positions a result from the pass before could decide.
+// whatever is left over is a draw.
+//
+// material groups are solved fewest pieces first and then fewest men first, so
+// captures and crowning always lead into groups that are already done.
+// every group is kept in memory until the file is written; five pieces needs
+// a heap of about 1 GB. greg.checkers.tools.TablebaseTool runs it from the command line
+public class TablebaseGenerator {
+    public interface Listener {
+        // a material group of counts black men, black kings, red men and red kings is
+        // done: positions in it, the longest win or loss in plies, and the time it took
+        void solved(int[] counts, int positions, int longestPlies, long nanos);
+    }
+
+    // values are bytes, so distances must stay below this
+    private static final int MAX_PLIES = 126;
+
+    private final int maxPieces;
+    private final boolean allowAnyMove;
+    // values of each solved group, by group number: every placement with black to move,
+    // then every placement with red to move
+    private final byte[][] values;
+    // last pass with positions to look at in the group being solved
+    private int lastPass;
+    private Listener listener;
+
+    private final Board board = new Board(new int[8][8]);
+    private final MoveList moves = new MoveList();
+    private final MoveUndo undo = new MoveUndo();
+
+    private final Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+    private final byte[] packed = new byte[Tablebase.BLOCK_SIZE];
+
+    // neighbouring square in each direction, or -1 off the board
+    private static final int[][] NEIGHBOR = new int[Board.SQUARES][4];
+    // squares where a man of each side would already have been crowned
+    private static final int BLACK_CROWN_ROW;
+    private static final int RED_CROWN_ROW;
+
+    static {
+        int blackRow = 0;
+        int redRow = 0;
+        int[] dx = new int[]{-1, 1, -1, 1};
+        int[] dy = new int[]{1, 1, -1, -1};
+        for (int sq = 0; sq < Board.SQUARES; sq++) {
+            for (int d = 0; d < 4; d++) {
+                int x = Board.squareX(sq) + dx[d];
+                int y = Board.squareY(sq) + dy[d];
+                NEIGHBOR[sq][d] = (x >= 0 && y >= 0 && x < 8 && y < 8) ? Board.square(x, y) : -1;
+            }
+            if (Board.squareY(sq) == 0) {
+                blackRow |= 1 << sq;
+            } else if (Board.squareY(sq) == 7) {
+                redRow |= 1 << sq;
+            }
+        }
+        BLACK_CROWN_ROW = blackRow;
+        RED_CROWN_ROW = redRow;
+    }
+
+    public TablebaseGenerator(int maxPieces, boolean allowAnyMove) {
+        if (maxPieces < 2 || maxPieces > 8) {
+            throw new IllegalArgumentException("maxPieces must be between 2 and 8");
+        }
+        this.maxPieces = maxPieces;
+        this.allowAnyMove = allowAnyMove;
+        values = new byte[Tablebase.groupCount(maxPieces)][];
+    }
+
+    // told about each group as it is solved, or null
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    public void generate() {
+        for (int pieces = 2; pieces <= maxPieces; pieces++) {
+            for (int men = 0; men <= pieces; men++) {
+                for (int blackMen = 0; blackMen <= men; blackMen++) {
+                    int redMen = men - blackMen;
+                    for (int blackKings = 0; blackKings <= pieces - men; blackKings++) {
+                        int redKings = pieces - men - blackKings;
+                        if (blackMen + blackKings > 0 && redMen + redKings > 0) {
+                            solve(new int[]{blackMen, blackKings, redMen, redKings});
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private void solve(int[] counts) {
+        long start = System.nanoTime();
+        long placements = Tablebase.placements(counts);
+        if (placements * 2 > Integer.MAX_VALUE) {
+            throw new IllegalStateException("material group too large");
+        }
+        byte[] group = new byte[(int)placements * 2];
+        values[Tablebase.group(maxPieces, counts)] = group;
+        // passes in which each position should be looked at again: after a move
+        // into this group found a result, and after results found in other groups
+        byte[] retry = new byte[group.length];
+        byte[] lossWake = new byte[group.length];
+        byte[] winWake = new byte[group.length];
+        lastPass = 0;
+
+        // stuck positions are lost straight away. positions that cannot happen
+        // are left at 0, and never looked at again, so they pack well
+        for (int i = 0; i < group.length; i++) {
+            if (!setPosition(counts, i, group.length)) {
+                continue;
+            }
+            int turn = turn(i, group.length);
+            moves.clear();
+            board.generateMoves(turn, allowAnyMove, moves);
+            if (moves.size() == 0) {
+                group[i] = -1;
+                retryPredecessors(turn, group, retry, 1);
+                continue;
+            }
+            int minLoss = Integer.MAX_VALUE;
+            int maxWin = -1;
+            for (int m = 0; m < moves.size(); m++) {
+                board.makeMove(moves.get(m), undo);
+                int oppositeTurn = (turn == CheckersGame.RED) ? CheckersGame.BLACK : CheckersGame.RED;
+                if (groupOf(oppositeTurn) != group) {
+                    int value = value(oppositeTurn);
+                    if (Tablebase.isLoss(value)) {
+                        minLoss = Math.min(minLoss, Tablebase.plies(value));
+                    } else if (Tablebase.isWin(value)) {
+                        maxWin = Math.max(maxWin, Tablebase.plies(value));
+                    }
+                }
+                board.unmakeMove(undo);
+            }
+            if (minLoss != Integer.MAX_VALUE) {
+                lossWake[i] = (byte)(minLoss + 1);
+                lastPass = Math.max(lastPass, minLoss + 1);
+            }
+            if (maxWin >= 0) {
+                winWake[i] = (byte)(maxWin + 1);
+                lastPass = Math.max(lastPass, maxWin + 1);
+            }
+        }
+
+        int groupPlies = 0;
+        for (int plies = 1; plies <= lastPass; plies++) {
+            if (plies >= MAX_PLIES) {
+                throw new IllegalStateException("results more than " + MAX_PLIES + " plies away");
+            }
+            for (int i = 0; i < group.length; i++) {
+                if (group[i] == 0 && (retry[i] >= plies || lossWake[i] == plies || winWake[i] == plies)
+                        && solvePosition(counts, i, plies, group)) {
+                    groupPlies = plies;
+                    retryPredecessors(turn(i, group.length), group, retry, plies + 1);
+                }
+            }
+        }
+
+        if (listener != null) {
+            listener.solved(counts, group.length, groupPlies, System.nanoTime() - start);
+        }
+    }
+
+    // set position i to a win or loss in plies if every move it needs has been found.
+    // the board is left on position i
+    private boolean solvePosition(int[] counts, int i, int plies, byte[] group) {
+        setPosition(counts, i, group.length);
+        int turn = turn(i, group.length);
+        int oppositeTurn = (turn == CheckersGame.RED) ? CheckersGame.BLACK : CheckersGame.RED;
+        moves.clear();
+        board.generateMoves(turn, allowAnyMove, moves);
+
+        boolean allLost = true;
+        for (int m = 0; m < moves.size(); m++) {
+            board.makeMove(moves.get(m), undo);
+            int value = value(oppositeTurn);
+            board.unmakeMove(undo);
+            // only results from earlier passes count, so distances are the shortest
+            boolean known = value != 0 && Tablebase.plies(value) < plies;
+            if (known && Tablebase.isLoss(value)) {
+                group[i] = (byte)plies;
+                return true;
+            }
+            if (!known) {
+                allLost = false;
+            }
+        }
+        if (allLost) {
+            group[i] = (byte)(-plies - 1);
+            return true;
+        }
+        return false;
+    }
+
+    // moves that stay in a group are steps that take nothing and crown nobody,
+    // so the unsolved positions one such step before the board, with the other
+    // side to move, are the only ones in the group its result can decide
+    private void retryPredecessors(int turn, byte[] group, byte[] retry, int pass) {
+        int mover = (turn == CheckersGame.RED) ? CheckersGame.BLACK : CheckersGame.RED;
+        int black = board.colorMask(CheckersGame.BLACK);
+        int red = board.colorMask(CheckersGame.RED);
+        int kings = board.kingMask();
+        int empty = ~(black | red);
+        int pieces = board.colorMask(mover);
+        int half = (mover == CheckersGame.RED) ? group.length / 2 : 0;
+        while (pieces != 0) {
+            int sq = Integer.numberOfTrailingZeros(pieces);
+            pieces &= pieces - 1;
+            int bit = 1 << sq;
+            boolean king = (kings & bit) != 0;
+            for (int d = 0; d < 4; d++) {
+                // men only arrive by stepping forwards
+                boolean backwards = (mover == CheckersGame.RED) ? d >= 2 : d < 2;
+                int from = NEIGHBOR[sq][d];
+                if (from < 0 || (empty & (1 << from)) == 0 || !(king || backwards)) {
+                    continue;
+                }
+                int moved = bit | (1 << from);
+                int before;
+                if (mover == CheckersGame.RED) {
+                    before = (int)Tablebase.rank(black, red ^ moved, king ? kings ^ moved : kings);
+                } else {
+                    before = (int)Tablebase.rank(black ^ moved, red, king ? kings ^ moved : kings);
+                }
+                if (group[half + before] == 0) {
+                    retry[half + before] = (byte)pass;
+                    lastPass = Math.max(lastPass, pass);
+                }
+            }
+        }
+    }
+
+    // set up position i of a group, returning whether it can come up in a game
+    private boolean setPosition(int[] counts, int i, int size) {
+        int[] sets = Tablebase.unrank(counts, i % (size / 2));
+        board.setPieces(sets[0] | sets[1], sets[2] | sets[3], sets[1] | sets[3]);
+        return (sets[0] & BLACK_CROWN_ROW) == 0 && (sets[2] & RED_CROWN_ROW) == 0;
+    }
+
+    private static int turn(int i, int size) {
+        return (i < size / 2) ? CheckersGame.BLACK : CheckersGame.RED;
+    }
+
+    // values of the group the board is in, or null when turn has no pieces
+    private byte[] groupOf(int turn) {
+        if (board.colorMask(turn) == 0) {
+            return null;
+        }
+        int black = board.colorMask(CheckersGame.BLACK);
+        int red = board.colorMask(CheckersGame.RED);
+        int kings = board.kingMask();
+        return values[Tablebase.group(maxPieces, Integer.bitCount(black & ~kings),
+                Integer.bitCount(black & kings), Integer.bitCount(red & ~kings), Integer.bitCount(red & kings))];
+    }
+
+    // value of the board with turn to move, 0 if it is not known yet
+    private int value(int turn) {
+        byte[] group = groupOf(turn);
+        if (group == null) {
+            return -1;
+        }
+        int black = board.colorMask(CheckersGame.BLACK);
+        int red = board.colorMask(CheckersGame.RED);
+        int kings = board.kingMask();
+        long index = Tablebase.rank(black, red, kings) + ((turn == CheckersGame.RED) ? group.length / 2 : 0);
+        return group[(int)index];
+    }
+
+    // write the solved groups, returning the number of positions written
+    public long write(File file) throws IOException {
+        long[] groupStart = new long[values.length];
+        long total = 0;
+        for (int g = 0; g < values.length; g++) {
+            if (values[g] != null) {
+                groupStart[g] = total;
+                total += values[g].length;
+            } else {
+                groupStart[g] = -1;
+            }
+        }
+        int blockCount = (int)((total + Tablebase.BLOCK_SIZE - 1) / Tablebase.BLOCK_SIZE);
+
+        int[] offsets = new int[blockCount + 1];
+        ByteArrayOutputStream blocks = new ByteArrayOutputStream();
+        byte[] block = new byte[Tablebase.BLOCK_SIZE];
+        int length = 0;
+        int count = 0;
+        for (byte[] group : values) {
+            if (group == null) {
+                continue;
+            }
+            for (byte value : group) {
+                block[length++] = value;
+                if (length == block.length) {
+                    offsets[count++] = writeBlock(block, length, blocks);
+                    length = 0;
+                }
+            }
+        }
+        if (length > 0) {
+            offsets[count] = writeBlock(block, length, blocks);
+        }
+        offsets[blockCount] = blocks.size();
+
+        DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+        try {
+            output.writeInt(Tablebase.MAGIC);
+            output.writeInt(Tablebase.VERSION);
+            output.writeInt(maxPieces);
+            output.writeInt(allowAnyMove ? 1 : 0);
+            output.writeInt(Tablebase.BLOCK_SIZE);
+            output.writeInt(blockCount);
+            for (long start : groupStart) {
+                output.writeLong(start);
+            }
+            for (int offset : offsets) {
+                output.writeInt(offset);
+            }
+            blocks.writeTo(output);
+        } finally {
+            output.close();
+        }
+        return total;
+    }
+
+    // append a block deflated, or as it is when that is no bigger, and return its offset
+    private int writeBlock(byte[] block, int length, ByteArrayOutputStream blocks) {
+        deflater.reset();
+        deflater.setInput(block, 0, length);
+        deflater.finish();
+        int packedLength = deflater.deflate(packed);
+        int offset = blocks.size();
+        if (deflater.finished() && packedLength < length) {
+            blocks.write(packed, 0, packedLength);
+            return offset;
+        }
+        blocks.write(block, 0, length);
+        return offset | Tablebase.RAW_BLOCK;
+    }
+}
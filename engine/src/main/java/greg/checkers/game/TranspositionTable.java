@@ -0,0 +1,111 @@
+package greg.checkers.game;
+
+// fixed-size hash table of search results, kept in two primitive arrays.
+// each bucket has two slots: the first keeps the deepest result of the
+// current search, the second always takes the newest one
+public class TranspositionTable {
+    public static final int EXACT = 1;
+    public static final int LOWER = 2;
+    public static final int UPPER = 3;
+
+    public static final long MISS = 0;
+    public static final int NO_MOVE = 0xFFFF;
+
+    // bytes per slot: one long key and one long entry
+    private static final int SLOT_BYTES = 16;
+
+    // entry layout: score 0-15, depth 16-23, bound 24-25, generation 26-33, move 34-49
+    private final long[] keys;
+    private final long[] entries;
+    private final int mask;
+    private int generation;
+
+    public TranspositionTable(int budgetBytes) {
+        int slots = 2;
+        while (slots * 2L * SLOT_BYTES <= budgetBytes && slots < (1 << 30)) {
+            slots *= 2;
+        }
+        keys = new long[slots];
+        entries = new long[slots];
+        mask = slots - 2;
+    }
+
+    public int size() {
+        return entries.length;
+    }
+
+    // start a new search so older results give way to newer ones
+    public void newSearch() {
+        generation = (generation + 1) & 0xFF;
+    }
+
+    public void clear() {
+        for (int i = 0; i < entries.length; i++) {
+            keys[i] = 0;
+            entries[i] = MISS;
+        }
+    }
+
+    // find the entry for a hash, or MISS.
+    // keys are stored xor'd with their entry so a torn write reads as a miss
+    public long probe(long hash) {
+        int index = (int)hash & mask;
+        long entry = entries[index];
+        if ((keys[index] ^ entry) == hash && entry != MISS) {
+            return entry;
+        }
+        entry = entries[index + 1];
+        if ((keys[index + 1] ^ entry) == hash && entry != MISS) {
+            return entry;
+        }
+        return MISS;
+    }
+
+    public void store(long hash, int depth, int bound, int score, int move) {
+        int index = (int)hash & mask;
+        int slot;
+        if ((keys[index] ^ entries[index]) == hash) {
+            slot = index;
+        } else if ((keys[index + 1] ^ entries[index + 1]) == hash) {
+            slot = index + 1;
+        } else {
+            long deepest = entries[index];
+            if (deepest == MISS || generation(deepest) != generation || depth >= depth(deepest)) {
+                slot = index;
+            } else {
+                slot = index + 1;
+            }
+        }
+        // keep the old best move if this result did not find one
+        if (move == NO_MOVE && (keys[slot] ^ entries[slot]) == hash) {
+            move = move(entries[slot]);
+        }
+        long entry = (score & 0xFFFFL)
+                | ((long)(depth & 0xFF) << 16)
+                | ((long)bound << 24)
+                | ((long)generation << 26)
+                | ((long)(move & 0xFFFF) << 34);
+        keys[slot] = hash ^ entry;
+        entries[slot] = entry;
+    }
+
+    public static int score(long entry) {
+        return (short)entry;
+    }
+
+    public static int depth(long entry) {
+        return (int)(entry >>> 16) & 0xFF;
+    }
+
+    public static int bound(long entry) {
+        return (int)(entry >>> 24) & 0x3;
+    }
+
+    public static int move(long entry) {
+        return (int)(entry >>> 34) & 0xFFFF;
+    }
+
+    private static int generation(long entry) {
+        return (int)(entry >>> 26) & 0xFF;
+    }
+}
@@ -0,0 +1,142 @@
+package greg.checkers.game;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.*;
+
+public class AlphaBetaTest {
+    private static final int POSITIONS = 25;
+
+    private static int opposite(int turn) {
+        return (turn == CheckersGame.RED) ? CheckersGame.BLACK : CheckersGame.RED;
+    }
+
+    // plain minimax with the search's own scoring: a side with no moves has lost,
+    // and depth 0 still tries every move and scores the positions it leads to
+    private static int minimax(Board board, int turn, int depth, boolean allowAnyMove) {
+        MoveList moves = new MoveList();
+        board.generateMoves(turn, allowAnyMove, moves);
+        if (moves.size() == 0) {
+            return -AlphaBeta.NO_MOVES;
+        }
+        int best = -AlphaBeta.INFINITY;
+        MoveUndo undo = new MoveUndo();
+        for (int i = 0; i < moves.size(); i++) {
+            board.makeMove(moves.get(i), undo);
+            int score;
+            if (depth > 0) {
+                score = -minimax(board, opposite(turn), depth - 1, allowAnyMove);
+            } else {
+                score = (turn == CheckersGame.BLACK) ? board.pseudoScore() : -board.pseudoScore();
+            }
+            board.unmakeMove(undo);
+            best = Math.max(best, score);
+        }
+        return best;
+    }
+
+    // positions with turn to move and at least two moves, so the search runs
+    private static List<Board> positions(Random random, int turn, boolean allowAnyMove) {
+        List<Board> boards = new ArrayList<>();
+        while (boards.size() < POSITIONS) {
+            Board board = new Board((CheckersGame)null);
+            int side = CheckersGame.BLACK;
+            int plies = 2 * random.nextInt(20) + (turn == CheckersGame.RED ? 1 : 0);
+            for (int ply = 0; ply < plies; ply++) {
+                Move[] moves = board.getMoves(side, allowAnyMove);
+                if (moves.length == 0) {
+                    break;
+                }
+                board.makeMove(moves[random.nextInt(moves.length)]);
+                side = opposite(side);
+            }
+            if (side == turn && board.getMoves(turn, allowAnyMove).length >= 2) {
+                boards.add(board);
+            }
+        }
+        return boards;
+    }
+
+    private static void checkSearch(boolean anyMove, boolean withTable, boolean withPool, long seed) {
+        ExecutorService pool = withPool ? Executors.newFixedThreadPool(3) : null;
+        try {
+            TranspositionTable table = withTable ? new TranspositionTable(1 << 20) : null;
+            AlphaBeta search = new AlphaBeta(anyMove, table, pool);
+            search.setQuiescenceLimit(0);
+            Random random = new Random(seed);
+            for (int turn = CheckersGame.BLACK; turn <= CheckersGame.RED; turn++) {
+                for (Board board : positions(random, turn, anyMove)) {
+                    for (int depth = 1; depth <= 4; depth++) {
+                        // every root move with the best minimax score, as packed moves
+                        MoveList moves = new MoveList();
+                        board.generateMoves(turn, anyMove, moves);
+                        Board work = new Board(board);
+                        MoveUndo undo = new MoveUndo();
+                        int best = -AlphaBeta.INFINITY;
+                        int[] scores = new int[moves.size()];
+                        for (int i = 0; i < moves.size(); i++) {
+                            work.makeMove(moves.get(i), undo);
+                            scores[i] = -minimax(work, opposite(turn), depth, anyMove);
+                            work.unmakeMove(undo);
+                            best = Math.max(best, scores[i]);
+                        }
+                        TreeSet<Long> expected = new TreeSet<>();
+                        for (int i = 0; i < moves.size(); i++) {
+                            if (scores[i] == best) {
+                                expected.add(moves.get(i));
+                            }
+                        }
+
+                        TreeSet<Long> found = new TreeSet<>();
+                        for (Move move : search.bestMoves(board, turn, depth)) {
+                            found.add(board.packMove(move));
+                        }
+                        assertEquals(expected, found);
+                        assertEquals(best, search.getBestScore());
+                    }
+                }
+            }
+        } finally {
+            if (pool != null) {
+                pool.shutdown();
+            }
+        }
+    }
+
+    @Test
+    public void matchesMinimax() {
+        checkSearch(false, false, false, 21);
+    }
+
+    @Test
+    public void matchesMinimaxWithTable() {
+        checkSearch(false, true, false, 22);
+    }
+
+    @Test
+    public void matchesMinimaxWithPool() {
+        checkSearch(false, false, true, 23);
+    }
+
+    @Test
+    public void matchesMinimaxWithTableAndPool() {
+        checkSearch(false, true, true, 24);
+    }
+
+    @Test
+    public void matchesMinimaxWithAnyMove() {
+        checkSearch(true, false, false, 25);
+    }
+
+    @Test
+    public void matchesMinimaxWithAnyMoveTableAndPool() {
+        checkSearch(true, true, true, 26);
+    }
+}
@@ -0,0 +1,208 @@
+package greg.checkers.game;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class AnalysisCacheTest {
+    private File directory;
+    // distinct positions with black to move
+    private final List<Board> boards = new ArrayList<>();
+
+    @Before
+    public void setUp() throws IOException {
+        directory = File.createTempFile("analysis", "");
+        directory.delete();
+        directory.mkdirs();
+
+        Random random = new Random(9);
+        HashSet<Long> keys = new HashSet<>();
+        while (boards.size() < 600) {
+            Board board = new Board((CheckersGame)null);
+            int turn = CheckersGame.BLACK;
+            for (int ply = 0; ply < 2 + random.nextInt(20); ply++) {
+                Move[] moves = board.getMoves(turn, false);
+                if (moves.length == 0) {
+                    break;
+                }
+                board.makeMove(moves[random.nextInt(moves.length)]);
+                turn = (turn == CheckersGame.BLACK) ? CheckersGame.RED : CheckersGame.BLACK;
+            }
+            if (turn == CheckersGame.BLACK && keys.add(AnalysisCache.key(board, turn, false))) {
+                boards.add(board);
+            }
+        }
+    }
+
+    @After
+    public void tearDown() {
+        for (File file : directory.listFiles()) {
+            file.delete();
+        }
+        directory.delete();
+    }
+
+    private static void put(AnalysisCache cache, Board board, int i, int depth) {
+        cache.put(board, CheckersGame.BLACK, false, 1000L + i, 1L << (i % 7), i - 300, depth);
+    }
+
+    private static void assertStored(AnalysisCache cache, Board board, int i, int depth) {
+        AnalysisCache.Analysis analysis = cache.get(board, CheckersGame.BLACK, false);
+        assertNotNull("result " + i + " lost", analysis);
+        assertEquals(1000L + i, analysis.getMove());
+        assertEquals(1L << (i % 7), analysis.getBestMask());
+        assertEquals(i - 300, analysis.getScore());
+        assertEquals(depth, analysis.getDepth());
+    }
+
+    @Test
+    public void resultsSurviveCompactionAndReopening() throws Exception {
+        AnalysisCache cache = new AnalysisCache(directory, 1000);
+        for (int i = 0; i < boards.size(); i++) {
+            put(cache, boards.get(i), i, 4);
+        }
+        // a shallower result does not replace a deeper one
+        put(cache, boards.get(0), 0, 2);
+        assertStored(cache, boards.get(0), 0, 4);
+        cache.close(10000);
+        assertTrue(new File(directory, "analysis.index").exists());
+
+        AnalysisCache reopened = new AnalysisCache(directory, 1000);
+        assertEquals(boards.size(), reopened.size());
+        for (int i = 0; i < boards.size(); i++) {
+            assertStored(reopened, boards.get(i), i, 4);
+        }
+        assertNull(reopened.takeLastError());
+        reopened.close(10000);
+    }
+
+    @Test
+    public void compactionKeepsTheLimit() throws Exception {
+        AnalysisCache cache = new AnalysisCache(directory, 256);
+        for (int i = 0; i < boards.size(); i++) {
+            put(cache, boards.get(i), i, 3);
+        }
+        cache.close(10000);
+
+        AnalysisCache reopened = new AnalysisCache(directory, 256);
+        int size = reopened.size();
+        assertTrue("size " + size, size <= 256 + 256 / 4);
+        int found = 0;
+        for (int i = 0; i < boards.size(); i++) {
+            if (reopened.get(boards.get(i), CheckersGame.BLACK, false) != null) {
+                assertStored(reopened, boards.get(i), i, 3);
+                found++;
+            }
+        }
+        assertEquals(size, found);
+        reopened.close(10000);
+    }
+
+    @Test
+    public void damagedIndexIsDiscarded() throws Exception {
+        AnalysisCache cache = new AnalysisCache(directory, 256);
+        for (int i = 0; i < 300; i++) {
+            put(cache, boards.get(i), i, 3);
+        }
+        cache.close(10000);
+        File index = new File(directory, "analysis.index");
+        assertTrue(index.exists());
+        RandomAccessFile file = new RandomAccessFile(index, "rw");
+        try {
+            file.writeInt(0x12345678);
+        } finally {
+            file.close();
+        }
+
+        AnalysisCache reopened = new AnalysisCache(directory, 256);
+        assertNull(reopened.get(boards.get(0), CheckersGame.BLACK, false));
+        assertNotNull(reopened.takeLastError());
+        assertFalse(index.exists());
+        // and it is usable again
+        put(reopened, boards.get(0), 0, 5);
+        assertStored(reopened, boards.get(0), 0, 5);
+        reopened.close(10000);
+    }
+
+    @Test
+    public void oversizedIndexCountIsDiscarded() throws Exception {
+        AnalysisCache cache = new AnalysisCache(directory, 256);
+        for (int i = 0; i < 300; i++) {
+            put(cache, boards.get(i), i, 3);
+        }
+        cache.close(10000);
+        RandomAccessFile file = new RandomAccessFile(new File(directory, "analysis.index"), "rw");
+        try {
+            file.seek(8);
+            file.writeInt(1 << 20);
+        } finally {
+            file.close();
+        }
+
+        AnalysisCache reopened = new AnalysisCache(directory, 256);
+        assertEquals(0, reopened.size());
+        assertNotNull(reopened.takeLastError());
+        reopened.close(10000);
+    }
+
+    @Test
+    public void partialLogRecordIsIgnored() throws Exception {
+        AnalysisCache cache = new AnalysisCache(directory, 1000);
+        for (int i = 0; i < 100; i++) {
+            put(cache, boards.get(i), i, 3);
+        }
+        cache.close(10000);
+        // a write cut short by a crash
+        FileOutputStream log = new FileOutputStream(new File(directory, "analysis.log"), true);
+        try {
+            log.write(new byte[]{1, 2, 3, 4, 5});
+        } finally {
+            log.close();
+        }
+
+        AnalysisCache reopened = new AnalysisCache(directory, 1000);
+        for (int i = 0; i < 100; i++) {
+            assertStored(reopened, boards.get(i), i, 3);
+        }
+        // new results line up after the dropped bytes
+        put(reopened, boards.get(100), 100, 3);
+        reopened.close(10000);
+        AnalysisCache again = new AnalysisCache(directory, 1000);
+        assertEquals(101, again.size());
+        assertStored(again, boards.get(100), 100, 3);
+        assertNull(again.takeLastError());
+        again.close(10000);
+    }
+
+    @Test
+    public void logOfAnotherVersionIsDiscarded() throws Exception {
+        AnalysisCache cache = new AnalysisCache(directory, 1000);
+        for (int i = 0; i < 100; i++) {
+            put(cache, boards.get(i), i, 3);
+        }
+        cache.close(10000);
+        RandomAccessFile file = new RandomAccessFile(new File(directory, "analysis.log"), "rw");
+        try {
+            file.seek(4);
+            file.writeInt(AnalysisCache.VERSION - 1);
+        } finally {
+            file.close();
+        }
+
+        AnalysisCache reopened = new AnalysisCache(directory, 1000);
+        assertEquals(0, reopened.size());
+        assertNotNull(reopened.takeLastError());
+        reopened.close(10000);
+    }
+}
@@ -0,0 +1,136 @@
+package greg.checkers.game;
+
+import greg.checkers.game.BatchAnalyzer.Request;
+import greg.checkers.game.BatchAnalyzer.Result;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+public class BatchAnalyzerTest {
+    // an analyzer whose search just sleeps, recording what it was given
+    private static class SlowAnalyzer extends BatchAnalyzer {
+        private final Random random = new Random(22);
+        private final int maxMillis;
+        final AtomicInteger started = new AtomicInteger();
+        final AtomicLong highestStarted = new AtomicLong(-1);
+
+        SlowAnalyzer(int threads, int capacity, int maxMillis) {
+            super(false, threads, capacity, 1024);
+            this.maxMillis = maxMillis;
+        }
+
+        @Override
+        Result analyze(long index, Request request, TranspositionTable table) {
+            started.incrementAndGet();
+            long highest = highestStarted.get();
+            while (index > highest && !highestStarted.compareAndSet(highest, index)) {
+                highest = highestStarted.get();
+            }
+            int millis;
+            synchronized (random) {
+                millis = random.nextInt(maxMillis + 1);
+            }
+            try {
+                Thread.sleep(millis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return new Result(index, request, new ArrayList<Move>(), (int)index, new SearchStats());
+        }
+    }
+
+    private static Request[] requests(int count) {
+        Request[] requests = new Request[count];
+        Board board = new Board((CheckersGame)null);
+        for (int i = 0; i < count; i++) {
+            requests[i] = new Request(board, CheckersGame.BLACK, 1, 0);
+        }
+        return requests;
+    }
+
+    // submits every request from its own thread, then ends the input
+    private static Thread feed(final BatchAnalyzer analyzer, final Request[] requests, final AtomicInteger submitted) {
+        Thread feeder = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    for (Request request : requests) {
+                        analyzer.submit(request);
+                        submitted.incrementAndGet();
+                    }
+                    analyzer.end();
+                } catch (InterruptedException e) {
+                    // test over
+                }
+            }
+        });
+        feeder.start();
+        return feeder;
+    }
+
+    @Test
+    public void resultsComeBackInInputOrder() throws Exception {
+        int capacity = 5;
+        SlowAnalyzer analyzer = new SlowAnalyzer(3, capacity, 8);
+        Request[] requests = requests(60);
+        Thread feeder = feed(analyzer, requests, new AtomicInteger());
+        Random random = new Random(23);
+        try {
+            for (int i = 0; i < requests.length; i++) {
+                // only this thread takes, so exactly i results have been taken and
+                // nothing past the first i + capacity positions can have started
+                assertTrue(analyzer.highestStarted.get() < i + capacity);
+                if (random.nextInt(4) == 0) {
+                    Thread.sleep(random.nextInt(10));
+                }
+                Result result = analyzer.take();
+                assertNotNull(result);
+                assertEquals(i, result.getIndex());
+                assertSame(requests[i], result.getRequest());
+                assertEquals(i, result.getScore());
+            }
+            assertNull(analyzer.take());
+            feeder.join();
+            assertEquals(requests.length, analyzer.started.get());
+        } finally {
+            analyzer.shutdown();
+            feeder.interrupt();
+        }
+    }
+
+    @Test
+    public void submitWaitsWhileThePipelineIsFull() throws Exception {
+        int capacity = 3;
+        SlowAnalyzer analyzer = new SlowAnalyzer(2, capacity, 2);
+        Request[] requests = requests(10);
+        AtomicInteger submitted = new AtomicInteger();
+        Thread feeder = feed(analyzer, requests, submitted);
+        try {
+            // nothing is taken, so the feeder blocks once capacity positions are in
+            Thread.sleep(300);
+            assertEquals(capacity, submitted.get());
+            assertEquals(capacity, analyzer.started.get());
+            assertTrue(feeder.isAlive());
+
+            // each result taken lets one more position in
+            assertEquals(0, analyzer.take().getIndex());
+            Thread.sleep(300);
+            assertEquals(capacity + 1, submitted.get());
+            assertEquals(capacity + 1, analyzer.started.get());
+
+            for (int i = 1; i < requests.length; i++) {
+                assertEquals(i, analyzer.take().getIndex());
+            }
+            assertNull(analyzer.take());
+            feeder.join();
+        } finally {
+            analyzer.shutdown();
+            feeder.interrupt();
+        }
+    }
+}
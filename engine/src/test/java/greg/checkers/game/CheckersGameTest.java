@@ -0,0 +1,100 @@
+package greg.checkers.game;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class CheckersGameTest {
+    // the indexed moves of game must match moves generated afresh for its position
+    private static void assertMovesCurrent(CheckersGame game) {
+        Board board = game.getBoard();
+        MoveList fresh = new MoveList();
+        board.generateMoves(game.whoseTurn(), game.allowsAnyMove(), fresh);
+
+        int movable = 0;
+        int[] destinations = new int[Board.SQUARES];
+        int[] captures = new int[Board.SQUARES * Board.SQUARES];
+        Arrays.fill(captures, -1);
+        for (int i = 0; i < fresh.size(); i++) {
+            long move = fresh.get(i);
+            int from = PackedMove.from(move);
+            int to = PackedMove.to(move);
+            movable |= 1 << from;
+            destinations[from] |= 1 << to;
+            int pair = from * Board.SQUARES + to;
+            captures[pair] = Math.max(captures[pair], PackedMove.captureCount(move));
+        }
+
+        assertEquals(fresh.size(), game.getMoveList().size());
+        assertEquals(movable, game.getMovablePieces());
+        for (int x1 = 0; x1 < 8; x1++) {
+            for (int y1 = 0; y1 < 8; y1++) {
+                Position start = new Position(x1, y1);
+                if (!board.isGameSquare(start)) {
+                    continue;
+                }
+                int from = Board.square(x1, y1);
+                assertEquals(destinations[from], game.getDestinations(from));
+                for (int x2 = 0; x2 < 8; x2++) {
+                    for (int y2 = 0; y2 < 8; y2++) {
+                        Position end = new Position(x2, y2);
+                        if (!board.isGameSquare(end)) {
+                            continue;
+                        }
+                        Move longest = game.getLongestMove(start, end);
+                        int expected = captures[from * Board.SQUARES + Board.square(x2, y2)];
+                        if (expected < 0) {
+                            assertNull(longest);
+                        } else {
+                            assertNotNull(longest);
+                            assertEquals(start, longest.start());
+                            assertEquals(end, longest.end());
+                            assertEquals(expected, longest.captures.size());
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void movesFollowTheGame() {
+        Random random = new Random(16);
+        CheckersGame game = new CheckersGame(false);
+        for (int step = 0; step < 2000; step++) {
+            // the cache is filled before every change, so a missed invalidation shows
+            assertMovesCurrent(game);
+            int action = random.nextInt(40);
+            Move[] moves = game.getMoves();
+            if (action == 0 || moves.length == 0) {
+                game.restart();
+            } else if (action < 4) {
+                game.setAnyMove(!game.allowsAnyMove());
+            } else {
+                game.makeMove(moves[random.nextInt(moves.length)]);
+            }
+        }
+        assertMovesCurrent(game);
+    }
+
+    @Test
+    public void restartClearsTheOldPosition() {
+        CheckersGame game = new CheckersGame(true);
+        Random random = new Random(17);
+        for (int ply = 0; ply < 30; ply++) {
+            Move[] moves = game.getMoves();
+            if (moves.length == 0) {
+                break;
+            }
+            game.makeMove(moves[random.nextInt(moves.length)]);
+            game.getMovablePieces();
+        }
+        game.restart();
+        assertEquals(CheckersGame.BLACK, game.whoseTurn());
+        assertTrue(game.getHistory().isEmpty());
+        assertMovesCurrent(game);
+    }
+}
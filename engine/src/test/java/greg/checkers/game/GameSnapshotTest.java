@@ -0,0 +1,135 @@
+package greg.checkers.game;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class GameSnapshotTest {
+    private static CheckersGame randomGame(Random random, boolean allowAnyMove, int plies) {
+        CheckersGame game = new CheckersGame(allowAnyMove);
+        for (int ply = 0; ply < plies; ply++) {
+            Move[] moves = game.getMoves();
+            if (moves.length == 0) {
+                break;
+            }
+            game.makeMove(moves[random.nextInt(moves.length)]);
+        }
+        return game;
+    }
+
+    private static void assertSameGame(CheckersGame expected, CheckersGame actual) {
+        assertEquals(expected.allowsAnyMove(), actual.allowsAnyMove());
+        assertEquals(expected.whoseTurn(), actual.whoseTurn());
+        assertEquals(expected.getHistory().size(), actual.getHistory().size());
+        assertEquals(expected.getBoard().getHash(expected.whoseTurn()),
+                actual.getBoard().getHash(actual.whoseTurn()));
+    }
+
+    @Test
+    public void encodeDecodeRoundTrip() throws IOException {
+        Random random = new Random(5);
+        for (int i = 0; i < 100; i++) {
+            CheckersGame game = randomGame(random, i % 2 == 1, random.nextInt(120));
+            String difficulty = (i % 3 == 0) ? null : "hard";
+            GameSnapshot snapshot = GameSnapshot.decode(new GameSnapshot(game, difficulty).encode());
+            assertSameGame(game, snapshot.getGame());
+            assertEquals(difficulty, snapshot.getDifficulty());
+        }
+    }
+
+    @Test
+    public void restoresGamesThatChangedRules() throws IOException {
+        Random random = new Random(10);
+        int declined = 0;
+        for (int i = 0; i < 50; i++) {
+            CheckersGame game = new CheckersGame(true);
+            // play any-move rules until a capture is passed up
+            boolean passedUp = false;
+            for (int ply = 0; ply < 100 && !passedUp; ply++) {
+                Move[] moves = game.getMoves();
+                if (moves.length == 0) {
+                    break;
+                }
+                Move move = moves[random.nextInt(moves.length)];
+                MoveList standard = new MoveList();
+                game.getBoard().generateMoves(game.whoseTurn(), false, standard);
+                passedUp = standard.indexOf(game.getBoard().packMove(move)) < 0;
+                game.makeMove(move);
+            }
+            if (!passedUp) {
+                continue;
+            }
+            declined++;
+            // then go on under standard rules
+            game.setAnyMove(false);
+            for (int ply = 0; ply < 20; ply++) {
+                Move[] moves = game.getMoves();
+                if (moves.length == 0) {
+                    break;
+                }
+                game.makeMove(moves[random.nextInt(moves.length)]);
+            }
+            GameSnapshot snapshot = GameSnapshot.decode(new GameSnapshot(game, "hard").encode());
+            assertSameGame(game, snapshot.getGame());
+            assertFalse(snapshot.getGame().allowsAnyMove());
+        }
+        assertTrue(declined > 10);
+    }
+
+    @Test
+    public void rejectsEveryCorruptedByte() {
+        byte[] data = new GameSnapshot(randomGame(new Random(6), false, 40), "easy").encode();
+        for (int i = 0; i < data.length; i++) {
+            byte[] damaged = data.clone();
+            damaged[i] ^= 0x10;
+            try {
+                GameSnapshot.decode(damaged);
+                fail("damaged byte " + i + " not noticed");
+            } catch (IOException e) {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    public void rejectsTruncatedSnapshots() {
+        byte[] data = new GameSnapshot(randomGame(new Random(7), false, 40), "easy").encode();
+        for (int length = 0; length < data.length; length++) {
+            byte[] truncated = new byte[length];
+            System.arraycopy(data, 0, truncated, 0, length);
+            try {
+                GameSnapshot.decode(truncated);
+                fail("snapshot cut to " + length + " bytes not noticed");
+            } catch (IOException e) {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    public void fileKeepsTheLastSnapshot() throws Exception {
+        File file = File.createTempFile("snapshot", ".bin");
+        try {
+            SnapshotFile snapshots = new SnapshotFile(file);
+            Random random = new Random(8);
+            CheckersGame last = null;
+            for (int i = 0; i < 20; i++) {
+                last = randomGame(random, false, 30);
+                snapshots.save(new GameSnapshot(last, null).encode());
+            }
+            assertTrue(snapshots.flush(10000));
+            assertNull(snapshots.takeLastError());
+            assertSameGame(last, GameSnapshot.decode(snapshots.read()).getGame());
+
+            snapshots.delete();
+            assertTrue(snapshots.flush(10000));
+            assertNull(snapshots.read());
+        } finally {
+            file.delete();
+        }
+    }
+}
@@ -0,0 +1,214 @@
+package greg.checkers.game;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.Assert.*;
+
+public class MoveGenerationTest {
+    // the move rules of the Piece grid generator the bitboards replaced: men step
+    // and jump forwards, kings both ways, a jump goes on while it can (or may stop
+    // anywhere with any-move rules), a man crowned part way jumps on as a king, a
+    // captured piece is never jumped twice, and captures are mandatory unless any
+    // move is allowed
+    private static class Reference {
+        private final int[][] grid;
+
+        Reference(Board board) {
+            grid = board.saveBoard();
+        }
+
+        private boolean onBoard(int x, int y) {
+            return x >= 0 && y >= 0 && x < 8 && y < 8 && (x + y) % 2 > 0;
+        }
+
+        private int color(int x, int y) {
+            return onBoard(x, y) ? grid[x][y] % CheckersGame.KINGED : CheckersGame.NONE;
+        }
+
+        private static int[] directions(int color, boolean king) {
+            if (king) {
+                return new int[]{-1, 1};
+            }
+            return (color == CheckersGame.RED) ? new int[]{1} : new int[]{-1};
+        }
+
+        private void jumps(Move move, int color, boolean king, boolean allowAnyMove, List<Move> result) {
+            Position at = move.end();
+            boolean continues = false;
+            for (int dy : directions(color, king || move.kings)) {
+                for (int dx = -1; dx <= 1; dx += 2) {
+                    int tx = at.x + dx;
+                    int ty = at.y + dy;
+                    int color2 = color(tx, ty);
+                    if (!onBoard(tx + dx, ty + dy) || grid[tx + dx][ty + dy] != CheckersGame.NONE
+                            || color2 == CheckersGame.NONE || color2 == color
+                            || move.captures.contains(new Position(tx, ty))) {
+                        continue;
+                    }
+                    Move longer = new Move(move);
+                    longer.add(tx + dx, ty + dy);
+                    jumps(longer, color, king, allowAnyMove, result);
+                    continues = true;
+                }
+            }
+            if (move.positions.size() > 1 && (!continues || allowAnyMove)) {
+                result.add(move);
+            }
+        }
+
+        List<Move> moves(int turn, boolean allowAnyMove) {
+            List<Move> steps = new ArrayList<>();
+            List<Move> captures = new ArrayList<>();
+            for (int x = 0; x < 8; x++) {
+                for (int y = 0; y < 8; y++) {
+                    if (color(x, y) != turn) {
+                        continue;
+                    }
+                    boolean king = grid[x][y] > CheckersGame.KINGED;
+                    for (int dy : directions(turn, king)) {
+                        for (int dx = -1; dx <= 1; dx += 2) {
+                            if (onBoard(x + dx, y + dy) && grid[x + dx][y + dy] == CheckersGame.NONE) {
+                                Move step = new Move(x, y);
+                                step.add(x + dx, y + dy);
+                                steps.add(step);
+                            }
+                        }
+                    }
+                    jumps(new Move(x, y), turn, king, allowAnyMove, captures);
+                }
+            }
+            if (!allowAnyMove && !captures.isEmpty()) {
+                return captures;
+            }
+            steps.addAll(captures);
+            return steps;
+        }
+    }
+
+    private static String path(Move move) {
+        StringBuilder text = new StringBuilder();
+        for (Position position : move.positions) {
+            text.append(position.x).append(',').append(position.y).append(' ');
+        }
+        return text.toString().trim();
+    }
+
+    private static List<String> paths(List<Move> moves) {
+        List<String> paths = new ArrayList<>();
+        for (Move move : moves) {
+            paths.add(path(move));
+        }
+        Collections.sort(paths);
+        return paths;
+    }
+
+    private static List<String> generated(Board board, int turn, boolean allowAnyMove) {
+        List<Move> moves = new ArrayList<>();
+        Collections.addAll(moves, board.getMoves(turn, allowAnyMove));
+        return paths(moves);
+    }
+
+    private static List<String> expected(String... paths) {
+        List<String> list = new ArrayList<>();
+        Collections.addAll(list, paths);
+        Collections.sort(list);
+        return list;
+    }
+
+    // pieces as x, y, kind triples, kind being a color plus KINGED for a king
+    private static Board position(int... pieces) {
+        int[][] grid = new int[8][8];
+        for (int i = 0; i < pieces.length; i += 3) {
+            grid[pieces[i]][pieces[i + 1]] = pieces[i + 2];
+        }
+        return new Board(grid);
+    }
+
+    private static void assertSameMoves(Board board, int turn, boolean allowAnyMove) {
+        List<Move> reference = new Reference(board).moves(turn, allowAnyMove);
+        assertEquals(paths(reference), generated(board, turn, allowAnyMove));
+
+        // the packed moves are the same moves, a path each
+        TreeSet<Long> packed = new TreeSet<>();
+        for (Move move : reference) {
+            packed.add(board.packMove(move));
+        }
+        MoveList list = new MoveList();
+        board.generateMoves(turn, allowAnyMove, list);
+        TreeSet<Long> generated = new TreeSet<>();
+        for (int i = 0; i < list.size(); i++) {
+            generated.add(list.get(i));
+        }
+        assertEquals(packed, generated);
+    }
+
+    @Test
+    public void capturesAreMandatoryUnlessAnyMoveIsAllowed() {
+        Board board = position(2, 5, CheckersGame.BLACK, 3, 4, CheckersGame.RED, 6, 5, CheckersGame.BLACK);
+        assertEquals(expected("2,5 4,3"), generated(board, CheckersGame.BLACK, false));
+        assertEquals(expected("2,5 4,3", "2,5 1,4", "6,5 5,4", "6,5 7,4"),
+                generated(board, CheckersGame.BLACK, true));
+        assertSameMoves(board, CheckersGame.BLACK, false);
+        assertSameMoves(board, CheckersGame.BLACK, true);
+    }
+
+    @Test
+    public void crownedManJumpsOnAsAKing() {
+        // the man is crowned on 3,0 and jumps back out as a king
+        Board board = position(5, 2, CheckersGame.BLACK, 4, 1, CheckersGame.RED, 2, 1, CheckersGame.RED);
+        assertEquals(expected("5,2 3,0 1,2"), generated(board, CheckersGame.BLACK, false));
+        assertEquals(expected("5,2 3,0", "5,2 3,0 1,2", "5,2 6,1"), generated(board, CheckersGame.BLACK, true));
+        MoveList list = new MoveList();
+        board.generateMoves(CheckersGame.BLACK, false, list);
+        assertEquals(1, list.size());
+        assertTrue(PackedMove.crowns(list.get(0)));
+        assertEquals(2, PackedMove.captureCount(list.get(0)));
+        assertSameMoves(board, CheckersGame.BLACK, false);
+        assertSameMoves(board, CheckersGame.BLACK, true);
+    }
+
+    @Test
+    public void kingJumpsBothWaysWithoutJumpingAPieceTwice() {
+        // four pieces around 3,4: the king can go round either way, but may not
+        // jump back over a piece it has taken, and its own start square is taken
+        Board board = position(3, 2, CheckersGame.BLACK + CheckersGame.KINGED,
+                4, 3, CheckersGame.RED, 4, 5, CheckersGame.RED, 2, 5, CheckersGame.RED, 2, 3, CheckersGame.RED);
+        assertEquals(expected("3,2 5,4 3,6 1,4", "3,2 1,4 3,6 5,4"), generated(board, CheckersGame.BLACK, false));
+        assertSameMoves(board, CheckersGame.BLACK, false);
+        assertSameMoves(board, CheckersGame.BLACK, true);
+    }
+
+    @Test
+    public void menOnlyMoveForwards() {
+        Board board = position(3, 4, CheckersGame.RED, 2, 5, CheckersGame.BLACK, 2, 3, CheckersGame.BLACK);
+        // red moves towards y = 7, so it can take 2,5 but not 2,3
+        assertEquals(expected("3,4 1,6"), generated(board, CheckersGame.RED, false));
+        assertSameMoves(board, CheckersGame.RED, false);
+        assertSameMoves(board, CheckersGame.RED, true);
+    }
+
+    @Test
+    public void matchesThePieceGridRulesInPlayedPositions() {
+        Random random = new Random(14);
+        for (int game = 0; game < 300; game++) {
+            boolean allowAnyMove = game % 2 == 1;
+            Board board = new Board((CheckersGame)null);
+            int turn = CheckersGame.BLACK;
+            for (int ply = 0; ply < 150; ply++) {
+                assertSameMoves(board, turn, allowAnyMove);
+                Move[] moves = board.getMoves(turn, allowAnyMove);
+                if (moves.length == 0) {
+                    break;
+                }
+                board.makeMove(moves[random.nextInt(moves.length)]);
+                turn = (turn == CheckersGame.BLACK) ? CheckersGame.RED : CheckersGame.BLACK;
+            }
+        }
+    }
+}
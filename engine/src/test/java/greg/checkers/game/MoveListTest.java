@@ -0,0 +1,82 @@
+package greg.checkers.game;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class MoveListTest {
+    @Test
+    public void growsPastItsCapacity() {
+        MoveList list = new MoveList(2);
+        for (long move = 0; move < 100; move++) {
+            list.add(move * 3);
+        }
+        assertEquals(100, list.size());
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i * 3L, list.get(i));
+        }
+    }
+
+    @Test
+    public void truncateUnwindsOnePly() {
+        MoveList list = new MoveList(4);
+        list.add(1);
+        list.add(2);
+        int start = list.size();
+        // a child node pushes its moves on top and pops them when it is done
+        list.add(10);
+        list.add(11);
+        list.add(12);
+        assertEquals(5, list.size());
+        list.truncate(start);
+        assertEquals(2, list.size());
+        assertEquals(1, list.get(0));
+        assertEquals(2, list.get(1));
+        assertEquals(-1, list.indexOf(10));
+
+        // the next child reuses the same slots
+        list.add(20);
+        assertEquals(3, list.size());
+        assertEquals(20, list.get(2));
+    }
+
+    @Test
+    public void generatedMovesStackByPly() {
+        Board board = new Board((CheckersGame)null);
+        MoveList list = new MoveList();
+        board.generateMoves(CheckersGame.BLACK, false, list);
+        int rootMoves = list.size();
+        assertEquals(7, rootMoves);
+
+        MoveUndo undo = new MoveUndo();
+        board.makeMove(list.get(0), undo);
+        board.generateMoves(CheckersGame.RED, false, list);
+        assertEquals(14, list.size());
+        board.unmakeMove(undo);
+        list.truncate(rootMoves);
+
+        MoveList fresh = new MoveList();
+        board.generateMoves(CheckersGame.BLACK, false, fresh);
+        assertEquals(fresh.size(), list.size());
+        for (int i = 0; i < fresh.size(); i++) {
+            assertEquals(fresh.get(i), list.get(i));
+        }
+    }
+
+    @Test
+    public void swapAndIndexOf() {
+        MoveList list = new MoveList();
+        list.add(5);
+        list.add(6);
+        list.add(7);
+        list.swap(0, 2);
+        assertEquals(7, list.get(0));
+        assertEquals(5, list.get(2));
+        assertEquals(0, list.indexOf(7));
+        assertEquals(2, list.indexOf(5));
+        assertEquals(-1, list.indexOf(8));
+        list.clear();
+        assertEquals(0, list.size());
+        assertEquals(-1, list.indexOf(7));
+    }
+}
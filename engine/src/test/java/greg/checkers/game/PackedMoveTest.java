@@ -0,0 +1,92 @@
+package greg.checkers.game;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class PackedMoveTest {
+    @Test
+    public void fieldsRoundTrip() {
+        Random random = new Random(1);
+        for (int from = 0; from < Board.SQUARES; from++) {
+            for (int to = 0; to < Board.SQUARES; to++) {
+                int captured = random.nextInt();
+                boolean crowns = random.nextBoolean();
+                long move = PackedMove.pack(from, to, captured, crowns);
+                assertEquals(from, PackedMove.from(move));
+                assertEquals(to, PackedMove.to(move));
+                assertEquals(captured, PackedMove.captured(move));
+                assertEquals(Integer.bitCount(captured), PackedMove.captureCount(move));
+                assertEquals(crowns, PackedMove.crowns(move));
+            }
+        }
+    }
+
+    @Test
+    public void boardMovesRoundTrip() {
+        Random random = new Random(2);
+        for (int game = 0; game < 200; game++) {
+            boolean allowAnyMove = game % 2 == 1;
+            Board board = new Board((CheckersGame)null);
+            int turn = CheckersGame.BLACK;
+            for (int ply = 0; ply < 200; ply++) {
+                MoveList moves = new MoveList();
+                board.generateMoves(turn, allowAnyMove, moves);
+                if (moves.size() == 0) {
+                    break;
+                }
+                for (int i = 0; i < moves.size(); i++) {
+                    Move move = board.unpackMove(moves.get(i));
+                    assertEquals(moves.get(i), board.packMove(move));
+                }
+                board.makeMove(moves.get(random.nextInt(moves.size())), null);
+                turn = (turn == CheckersGame.BLACK) ? CheckersGame.RED : CheckersGame.BLACK;
+            }
+        }
+    }
+
+    @Test
+    public void makeAndUnmakeRestoreTheBoard() {
+        Random random = new Random(3);
+        MoveUndo undo = new MoveUndo();
+        for (int game = 0; game < 200; game++) {
+            boolean allowAnyMove = game % 2 == 1;
+            Board board = new Board((CheckersGame)null);
+            int turn = CheckersGame.BLACK;
+            for (int ply = 0; ply < 200; ply++) {
+                MoveList moves = new MoveList();
+                board.generateMoves(turn, allowAnyMove, moves);
+                if (moves.size() == 0) {
+                    break;
+                }
+                long hash = board.getHash(turn);
+                int black = board.colorMask(CheckersGame.BLACK);
+                int red = board.colorMask(CheckersGame.RED);
+                int kings = board.kingMask();
+                int pieces = board.pieceCount();
+                int score = board.pseudoScore();
+                int[][] saved = board.saveBoard();
+                for (int i = 0; i < moves.size(); i++) {
+                    board.makeMove(moves.get(i), undo);
+                    // the hash is kept up to date as the move is made
+                    int[][] after = board.saveBoard();
+                    assertEquals(new Board(after).getHash(turn), board.getHash(turn));
+                    board.unmakeMove(undo);
+
+                    assertEquals(hash, board.getHash(turn));
+                    assertEquals(black, board.colorMask(CheckersGame.BLACK));
+                    assertEquals(red, board.colorMask(CheckersGame.RED));
+                    assertEquals(kings, board.kingMask());
+                    assertEquals(pieces, board.pieceCount());
+                    assertEquals(score, board.pseudoScore());
+                    assertTrue(Arrays.deepEquals(saved, board.saveBoard()));
+                }
+                board.makeMove(moves.get(random.nextInt(moves.size())), null);
+                turn = (turn == CheckersGame.BLACK) ? CheckersGame.RED : CheckersGame.BLACK;
+            }
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package greg.checkers.game;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class PdnTest {
+    private static PdnReader reader(String text) throws IOException {
+        return new PdnReader(new ByteArrayInputStream(text.getBytes("ISO-8859-1")));
+    }
+
+    private static String write(List<PdnGame> games) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        PdnWriter writer = new PdnWriter(output);
+        for (PdnGame game : games) {
+            writer.write(game);
+        }
+        writer.close();
+        return output.toString("ISO-8859-1");
+    }
+
+    private static List<PdnGame> readAll(String text) throws IOException {
+        PdnReader reader = reader(text);
+        List<PdnGame> games = new ArrayList<>();
+        PdnGame game;
+        while ((game = reader.next()) != null) {
+            games.add(game);
+        }
+        return games;
+    }
+
+    // a game of random moves from the usual start, or from a position partway through one
+    private static PdnGame randomGame(Random random, int number) {
+        Board start = new Board((CheckersGame)null);
+        int turn = CheckersGame.BLACK;
+        if (number % 2 == 1) {
+            for (int ply = 0; ply < 40; ply++) {
+                Move[] moves = start.getMoves(turn, false);
+                if (moves.length == 0) {
+                    break;
+                }
+                start.makeMove(moves[random.nextInt(moves.length)]);
+                turn = (turn == CheckersGame.BLACK) ? CheckersGame.RED : CheckersGame.BLACK;
+            }
+        }
+        Board board = new Board(start);
+        int startTurn = turn;
+        List<Move> moves = new ArrayList<>();
+        for (int ply = 0; ply < 80; ply++) {
+            Move[] legal = board.getMoves(turn, false);
+            if (legal.length == 0) {
+                break;
+            }
+            Move move = legal[random.nextInt(legal.length)];
+            moves.add(move);
+            board.makeMove(move);
+            turn = (turn == CheckersGame.BLACK) ? CheckersGame.RED : CheckersGame.BLACK;
+        }
+        LinkedHashMap<String, String> tags = new LinkedHashMap<>();
+        tags.put("Event", "game " + number);
+        tags.put("Round", Integer.toString(number));
+        return new PdnGame(tags, start, startTurn, moves, (number % 3 == 0) ? "1-0" : PdnGame.UNFINISHED);
+    }
+
+    private static void assertSameGame(PdnGame expected, PdnGame actual) {
+        assertEquals(expected.getTag("Event"), actual.getTag("Event"));
+        assertEquals(expected.getTag("Round"), actual.getTag("Round"));
+        assertEquals(expected.getResult(), actual.getResult());
+        assertEquals(expected.getStartTurn(), actual.getStartTurn());
+        Board board = expected.getStartBoard();
+        assertEquals(board.getHash(CheckersGame.BLACK), actual.getStartBoard().getHash(CheckersGame.BLACK));
+        assertEquals(expected.getMoves().size(), actual.getMoves().size());
+        for (int i = 0; i < expected.getMoves().size(); i++) {
+            Move move = expected.getMoves().get(i);
+            assertEquals(board.packMove(move), board.packMove(actual.getMoves().get(i)));
+            assertEquals(move.positions, actual.getMoves().get(i).positions);
+            board.makeMove(move);
+        }
+    }
+
+    @Test
+    public void readWriteReadRoundTrip() throws IOException {
+        Random random = new Random(4);
+        List<PdnGame> games = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            games.add(randomGame(random, i));
+        }
+        String text = write(games);
+        List<PdnGame> read = readAll(text);
+        assertEquals(games.size(), read.size());
+        for (int i = 0; i < games.size(); i++) {
+            assertSameGame(games.get(i), read.get(i));
+        }
+        // writing what was read gives the same text again
+        assertEquals(text, write(read));
+    }
+
+    @Test
+    public void skipsCommentsAndVariations() throws IOException {
+        List<PdnGame> games = readAll("[Event \"x\"]\n"
+                + "1. 11-15 {a comment (not a variation)} 24-20 (2. 8-11) 2. 15-19! 23x16 $1 3. 12x19?\n1/2-1/2\n");
+        assertEquals(1, games.size());
+        assertEquals("x", games.get(0).getTag("Event"));
+        assertEquals(5, games.get(0).getMoves().size());
+        assertEquals("1/2-1/2", games.get(0).getResult());
+    }
+
+    @Test
+    public void readsOnAfterABadGame() throws IOException {
+        PdnReader reader = reader("[Event \"bad\"]\n1. 11-15 22-18 2. 15-24 *\n"
+                + "[Event \"good\"]\n1. 11-15 *\n");
+        try {
+            reader.next();
+            fail("illegal move read");
+        } catch (PdnException e) {
+            // expected
+        }
+        PdnGame game = reader.next();
+        assertNotNull(game);
+        assertEquals("good", game.getTag("Event"));
+        assertEquals(1, game.getMoves().size());
+        assertNull(reader.next());
+    }
+}
@@ -0,0 +1,192 @@
+package greg.checkers.game;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class TablebaseTest {
+    private static final int MAX_PIECES = 3;
+
+    private static File standardFile;
+    private static File anyMoveFile;
+
+    @BeforeClass
+    public static void generate() throws IOException {
+        standardFile = File.createTempFile("tablebase", ".bin");
+        anyMoveFile = File.createTempFile("tablebase-any", ".bin");
+        TablebaseGenerator generator = new TablebaseGenerator(MAX_PIECES, false);
+        generator.generate();
+        generator.write(standardFile);
+        generator = new TablebaseGenerator(MAX_PIECES, true);
+        generator.generate();
+        generator.write(anyMoveFile);
+    }
+
+    @AfterClass
+    public static void deleteFiles() {
+        standardFile.delete();
+        anyMoveFile.delete();
+    }
+
+    // a random position of up to MAX_PIECES pieces that can come up in a game
+    private static Board randomPosition(Random random) {
+        while (true) {
+            int pieces = 2 + random.nextInt(MAX_PIECES - 1);
+            int black = 0;
+            int red = 0;
+            int kings = 0;
+            for (int i = 0; i < pieces; i++) {
+                int sq;
+                do {
+                    sq = random.nextInt(Board.SQUARES);
+                } while (((black | red) & (1 << sq)) != 0);
+                if (i == 0 || (i > 1 && random.nextBoolean())) {
+                    black |= 1 << sq;
+                } else {
+                    red |= 1 << sq;
+                }
+                if (random.nextBoolean()) {
+                    kings |= 1 << sq;
+                }
+            }
+            // men are crowned on the far row, so none can stand there
+            boolean possible = true;
+            for (int sq = 0; sq < Board.SQUARES; sq++) {
+                int bit = 1 << sq;
+                if ((kings & bit) == 0 && (((black & bit) != 0 && Board.squareY(sq) == 0)
+                        || ((red & bit) != 0 && Board.squareY(sq) == 7))) {
+                    possible = false;
+                }
+            }
+            if (possible) {
+                Board board = new Board(new int[8][8]);
+                board.setPieces(black, red, kings);
+                return board;
+            }
+        }
+    }
+
+    private static int opposite(int turn) {
+        return (turn == CheckersGame.BLACK) ? CheckersGame.RED : CheckersGame.BLACK;
+    }
+
+    // the value the position should have from the values one move on:
+    // a win one ply longer than the quickest loss it can reach, or else a loss
+    // one ply longer than the slowest win it must allow, or else a draw
+    private static int expectedValue(Tablebase tablebase, Board board, int turn) {
+        MoveList moves = new MoveList();
+        board.generateMoves(turn, tablebase.allowsAnyMove(), moves);
+        if (moves.size() == 0) {
+            return -1;
+        }
+        int quickestLoss = Integer.MAX_VALUE;
+        int slowestWin = -1;
+        boolean allWins = true;
+        MoveUndo undo = new MoveUndo();
+        for (int i = 0; i < moves.size(); i++) {
+            board.makeMove(moves.get(i), undo);
+            int value = tablebase.probe(board, opposite(turn));
+            board.unmakeMove(undo);
+            if (value == Tablebase.UNKNOWN) {
+                // every piece of the other side was taken
+                value = -1;
+            }
+            if (Tablebase.isLoss(value)) {
+                quickestLoss = Math.min(quickestLoss, Tablebase.plies(value));
+            }
+            if (Tablebase.isWin(value)) {
+                slowestWin = Math.max(slowestWin, Tablebase.plies(value));
+            } else {
+                allWins = false;
+            }
+        }
+        if (quickestLoss != Integer.MAX_VALUE) {
+            return quickestLoss + 1;
+        }
+        if (allWins) {
+            return -slowestWin - 2;
+        }
+        return 0;
+    }
+
+    private static void checkRecurrence(File file, boolean allowAnyMove) throws IOException {
+        Tablebase tablebase = Tablebase.open(file);
+        assertEquals(MAX_PIECES, tablebase.getMaxPieces());
+        assertEquals(allowAnyMove, tablebase.allowsAnyMove());
+        Random random = new Random(allowAnyMove ? 12 : 11);
+        int decided = 0;
+        for (int i = 0; i < 20000; i++) {
+            Board board = randomPosition(random);
+            int turn = random.nextBoolean() ? CheckersGame.BLACK : CheckersGame.RED;
+            int value = tablebase.probe(board, turn);
+            assertNotEquals(Tablebase.UNKNOWN, value);
+            assertEquals("position " + i, expectedValue(tablebase, board, turn), value);
+            if (value != 0) {
+                decided++;
+            }
+        }
+        assertTrue(decided > 1000);
+    }
+
+    @Test
+    public void standardValuesFollowFromTheirMoves() throws IOException {
+        checkRecurrence(standardFile, false);
+    }
+
+    @Test
+    public void anyMoveValuesFollowFromTheirMoves() throws IOException {
+        checkRecurrence(anyMoveFile, true);
+    }
+
+    @Test
+    public void notCoveredPositionsAreUnknown() throws IOException {
+        Tablebase tablebase = Tablebase.open(standardFile);
+        Board start = new Board((CheckersGame)null);
+        assertEquals(Tablebase.UNKNOWN, tablebase.probe(start, CheckersGame.BLACK));
+    }
+
+    @Test
+    public void searchPlaysTablebaseResults() throws IOException {
+        Tablebase tablebase = Tablebase.open(standardFile);
+        Random random = new Random(13);
+        for (int i = 0; i < 300; i++) {
+            Board board = randomPosition(random);
+            int turn = random.nextBoolean() ? CheckersGame.BLACK : CheckersGame.RED;
+            int value = tablebase.probe(board, turn);
+            MoveList moves = new MoveList();
+            board.generateMoves(turn, false, moves);
+            // a forced move is played without a search, so it has no score
+            if (moves.size() < 2) {
+                continue;
+            }
+            AlphaBeta search = new AlphaBeta(false);
+            search.setTablebase(tablebase);
+            search.setQuiescenceLimit(0);
+            ArrayList<Move> bestMoves = search.bestMoves(board, turn, 3);
+            // the search scores the position as the table does
+            if (Tablebase.isWin(value)) {
+                assertTrue(search.getBestScore() > 0);
+            } else if (Tablebase.isLoss(value)) {
+                assertTrue(search.getBestScore() < 0);
+            } else {
+                assertEquals(0, search.getBestScore());
+            }
+            // and a winning side only plays moves that keep the win
+            for (Move move : bestMoves) {
+                Board after = new Board(board);
+                after.makeMove(move);
+                int reply = tablebase.probe(after, opposite(turn));
+                if (Tablebase.isWin(value)) {
+                    assertTrue(reply == Tablebase.UNKNOWN || Tablebase.isLoss(reply));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package greg.checkers.game;
+
+import org.junit.Test;
+
+import java.lang.reflect.Field;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class TranspositionTableTest {
+    // a table of two buckets, 0 and 2; these keys all land in bucket 0
+    private static final long A = 0x1000000000000000L;
+    private static final long B = 0x2000000000000000L;
+    private static final long C = 0x3000000000000000L;
+    private static final long D = 0x4000000000000000L;
+
+    private static TranspositionTable tinyTable() {
+        TranspositionTable table = new TranspositionTable(64);
+        assertEquals(4, table.size());
+        return table;
+    }
+
+    @Test
+    public void emptyTableMisses() {
+        TranspositionTable table = new TranspositionTable(1024);
+        assertEquals(TranspositionTable.MISS, table.probe(0));
+        assertEquals(TranspositionTable.MISS, table.probe(A));
+    }
+
+    @Test
+    public void fieldsRoundTrip() {
+        TranspositionTable table = new TranspositionTable(1 << 16);
+        Random random = new Random(3);
+        for (int i = 0; i < 1000; i++) {
+            long key = random.nextLong();
+            int depth = random.nextInt(256);
+            int bound = 1 + random.nextInt(3);
+            int score = random.nextInt(2 * AlphaBeta.INFINITY + 1) - AlphaBeta.INFINITY;
+            int move = random.nextInt(0xFFFF);
+            table.store(key, depth, bound, score, move);
+            long entry = table.probe(key);
+            assertNotEquals(TranspositionTable.MISS, entry);
+            assertEquals(depth, TranspositionTable.depth(entry));
+            assertEquals(bound, TranspositionTable.bound(entry));
+            assertEquals(score, TranspositionTable.score(entry));
+            assertEquals(move, TranspositionTable.move(entry));
+        }
+    }
+
+    @Test
+    public void fieldsKeepTheirLimits() {
+        TranspositionTable table = new TranspositionTable(1024);
+        // every field at its largest, then at its smallest, with the generation
+        // at its largest so it sits next to the move bits
+        for (int i = 0; i < 255; i++) {
+            table.newSearch();
+        }
+        table.store(A, 255, TranspositionTable.UPPER, Short.MAX_VALUE, 0xFFFE);
+        long entry = table.probe(A);
+        assertEquals(255, TranspositionTable.depth(entry));
+        assertEquals(TranspositionTable.UPPER, TranspositionTable.bound(entry));
+        assertEquals(Short.MAX_VALUE, TranspositionTable.score(entry));
+        assertEquals(0xFFFE, TranspositionTable.move(entry));
+
+        table.store(B, 0, TranspositionTable.EXACT, Short.MIN_VALUE, 0);
+        entry = table.probe(B);
+        assertEquals(0, TranspositionTable.depth(entry));
+        assertEquals(TranspositionTable.EXACT, TranspositionTable.bound(entry));
+        assertEquals(Short.MIN_VALUE, TranspositionTable.score(entry));
+        assertEquals(0, TranspositionTable.move(entry));
+
+        // a negative score must not spill into the depth
+        table.store(C, 0, TranspositionTable.LOWER, -1, TranspositionTable.NO_MOVE);
+        entry = table.probe(C);
+        assertEquals(-1, TranspositionTable.score(entry));
+        assertEquals(0, TranspositionTable.depth(entry));
+        assertEquals(TranspositionTable.LOWER, TranspositionTable.bound(entry));
+        assertEquals(TranspositionTable.NO_MOVE, TranspositionTable.move(entry));
+
+        // the search's own extremes fit
+        table.store(D, 3, TranspositionTable.EXACT, -AlphaBeta.INFINITY, 1);
+        assertEquals(-AlphaBeta.INFINITY, TranspositionTable.score(table.probe(D)));
+        table.store(D, 3, TranspositionTable.EXACT, AlphaBeta.INFINITY, 1);
+        assertEquals(AlphaBeta.INFINITY, TranspositionTable.score(table.probe(D)));
+    }
+
+    @Test
+    public void deepestStaysAndNewestTakesTheOtherSlot() {
+        TranspositionTable table = tinyTable();
+        table.store(A, 5, TranspositionTable.EXACT, 10, 1);
+        table.store(B, 3, TranspositionTable.EXACT, 20, 2);
+        assertEquals(10, TranspositionTable.score(table.probe(A)));
+        assertEquals(20, TranspositionTable.score(table.probe(B)));
+
+        // shallower than the deepest: replaces the newest
+        table.store(C, 2, TranspositionTable.EXACT, 30, 3);
+        assertEquals(10, TranspositionTable.score(table.probe(A)));
+        assertEquals(TranspositionTable.MISS, table.probe(B));
+        assertEquals(30, TranspositionTable.score(table.probe(C)));
+
+        // as deep or deeper: takes the first slot
+        table.store(D, 5, TranspositionTable.EXACT, 40, 4);
+        assertEquals(TranspositionTable.MISS, table.probe(A));
+        assertEquals(30, TranspositionTable.score(table.probe(C)));
+        assertEquals(40, TranspositionTable.score(table.probe(D)));
+    }
+
+    @Test
+    public void sameKeyIsUpdatedInPlace() {
+        TranspositionTable table = tinyTable();
+        table.store(A, 5, TranspositionTable.EXACT, 10, 1);
+        table.store(B, 3, TranspositionTable.EXACT, 20, 2);
+        // a shallower result for the deepest key overwrites it rather than B
+        table.store(A, 1, TranspositionTable.LOWER, 11, 7);
+        long entry = table.probe(A);
+        assertEquals(1, TranspositionTable.depth(entry));
+        assertEquals(11, TranspositionTable.score(entry));
+        assertEquals(20, TranspositionTable.score(table.probe(B)));
+
+        // no move found keeps the old one
+        table.store(B, 4, TranspositionTable.UPPER, 21, TranspositionTable.NO_MOVE);
+        assertEquals(2, TranspositionTable.move(table.probe(B)));
+    }
+
+    @Test
+    public void olderSearchesGiveWay() {
+        TranspositionTable table = tinyTable();
+        table.store(A, 9, TranspositionTable.EXACT, 10, 1);
+        table.newSearch();
+        table.store(B, 1, TranspositionTable.EXACT, 20, 2);
+        assertEquals(TranspositionTable.MISS, table.probe(A));
+        assertEquals(20, TranspositionTable.score(table.probe(B)));
+    }
+
+    @Test
+    public void generationWraps() {
+        TranspositionTable table = tinyTable();
+        table.store(A, 9, TranspositionTable.EXACT, 10, 1);
+        // 256 searches later the generation is back where it was, so A counts
+        // as current again and keeps its slot
+        for (int i = 0; i < 256; i++) {
+            table.newSearch();
+        }
+        table.store(B, 1, TranspositionTable.EXACT, 20, 2);
+        assertEquals(10, TranspositionTable.score(table.probe(A)));
+        assertEquals(20, TranspositionTable.score(table.probe(B)));
+
+        // one short of a wrap it is old
+        for (int i = 0; i < 255; i++) {
+            table.newSearch();
+        }
+        table.store(C, 1, TranspositionTable.EXACT, 30, 3);
+        assertEquals(TranspositionTable.MISS, table.probe(A));
+        assertEquals(30, TranspositionTable.score(table.probe(C)));
+    }
+
+    @Test
+    public void collidingKeysMiss() {
+        TranspositionTable table = tinyTable();
+        table.store(A, 5, TranspositionTable.EXACT, 10, 1);
+        // same bucket, other keys
+        assertEquals(TranspositionTable.MISS, table.probe(B));
+        assertEquals(TranspositionTable.MISS, table.probe(A ^ 1L << 40));
+        assertEquals(TranspositionTable.MISS, table.probe(A | 1));
+    }
+
+    @Test
+    public void manyKeysEitherHitOrMiss() {
+        // a full table may drop results, but never returns one for another key
+        TranspositionTable table = new TranspositionTable(1 << 12);
+        Random random = new Random(5);
+        Map<Long, Integer> scores = new HashMap<>();
+        for (int i = 0; i < 20000; i++) {
+            long key = random.nextLong();
+            int score = random.nextInt(2000) - 1000;
+            table.store(key, random.nextInt(20), TranspositionTable.EXACT, score, 0);
+            scores.put(key, score);
+        }
+        int hits = 0;
+        for (Map.Entry<Long, Integer> stored : scores.entrySet()) {
+            long entry = table.probe(stored.getKey());
+            if (entry != TranspositionTable.MISS) {
+                assertEquals((int)stored.getValue(), TranspositionTable.score(entry));
+                hits++;
+            }
+        }
+        assertTrue(hits > 0 && hits <= table.size());
+    }
+
+    @Test
+    public void tornWriteMisses() throws Exception {
+        TranspositionTable table = tinyTable();
+        table.store(A, 5, TranspositionTable.EXACT, 10, 1);
+        table.store(B, 3, TranspositionTable.EXACT, 20, 2);
+        // half of a write seen by another thread: the entry of B next to the key of A
+        long[] keys = array(table, "keys");
+        long[] entries = array(table, "entries");
+        int a = (keys[0] ^ entries[0]) == A ? 0 : 1;
+        entries[a] = entries[1 - a];
+        assertEquals(TranspositionTable.MISS, table.probe(A));
+        assertEquals(20, TranspositionTable.score(table.probe(B)));
+    }
+
+    private static long[] array(TranspositionTable table, String name) throws Exception {
+        Field field = TranspositionTable.class.getDeclaredField(name);
+        field.setAccessible(true);
+        return (long[])field.get(table);
+    }
+}
@@ -0,0 +1,118 @@
+package greg.checkers.tools;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import greg.checkers.game.BatchAnalyzer;
+import greg.checkers.game.Board;
+import greg.checkers.game.CheckersGame;
+import greg.checkers.game.Move;
+import greg.checkers.game.PdnException;
+import greg.checkers.game.PdnGame;
+import greg.checkers.game.PdnReader;
+import greg.checkers.game.Position;
+import greg.checkers.game.SearchEngine;
+import greg.checkers.game.SearchStats;
+import greg.checkers.game.Tablebase;
+
+// scores every position of every game in a PDN archive, printing a line per
+// position: its index, the side to move, the score and the first best move.
+// run with: AnalyzeTool <pdn file> <depth> [nodes] [threads] [standard|any] [tablebase]
+public class AnalyzeTool {
+    // submit every position of every game the reader has, counting the games.
+    // a game that cannot be read is skipped, and a read error ends the input
+    private static void feed(BatchAnalyzer analyzer, PdnReader reader, int depth, long nodes, long[] games)
+            throws InterruptedException {
+        while (true) {
+            PdnGame game;
+            try {
+                game = reader.next();
+            } catch (PdnException e) {
+                System.err.println(e.getMessage());
+                continue;
+            } catch (IOException e) {
+                System.err.println(e.getMessage());
+                return;
+            }
+            if (game == null) {
+                return;
+            }
+            games[0]++;
+            Board board = game.getStartBoard();
+            int turn = game.getStartTurn();
+            for (Move move : game.getMoves()) {
+                analyzer.submit(new BatchAnalyzer.Request(board, turn, depth, nodes));
+                board.makeMove(move);
+                turn = (turn == CheckersGame.BLACK) ? CheckersGame.RED : CheckersGame.BLACK;
+            }
+        }
+    }
+
+    private static String moveText(Move move) {
+        if (move == null) {
+            return "-";
+        }
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < move.positions.size(); i++) {
+            if (i > 0) {
+                text.append(move.captures.isEmpty() ? '-' : 'x');
+            }
+            Position position = move.positions.get(i);
+            text.append(PdnGame.toNumber(position.x, position.y));
+        }
+        return text.toString();
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length < 2) {
+            System.err.println("usage: AnalyzeTool <pdn file> <depth> [nodes] [threads] [standard|any] [tablebase]");
+            System.exit(1);
+        }
+        final int depth = Integer.parseInt(args[1]);
+        final long nodes = (args.length > 2) ? Long.parseLong(args[2]) : 0;
+        int threads = (args.length > 3) ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+        final boolean allowAnyMove = args.length > 4 && args[4].equals("any");
+        final BatchAnalyzer analyzer = new BatchAnalyzer(allowAnyMove, threads, 4 * threads,
+                SearchEngine.DEFAULT_TABLE_BYTES);
+        if (args.length > 5) {
+            analyzer.setTablebase(Tablebase.open(new File(args[5])));
+        }
+        final InputStream input = new FileInputStream(args[0]);
+
+        // positions are fed from their own thread, blocking when the pipeline is full,
+        // while this one prints results as they come
+        final long[] games = new long[1];
+        Thread feeder = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    feed(analyzer, new PdnReader(input, allowAnyMove), depth, nodes, games);
+                    analyzer.end();
+                } catch (InterruptedException e) {
+                    // shut down
+                }
+            }
+        }, "AnalyzeTool feeder");
+        feeder.setDaemon(true);
+        feeder.start();
+
+        long start = System.nanoTime();
+        long positions = 0;
+        long searched = 0;
+        BatchAnalyzer.Result result;
+        while ((result = analyzer.take()) != null) {
+            positions++;
+            SearchStats stats = result.getStats();
+            searched += stats.getNodes() + stats.getQuiescenceNodes();
+            System.out.println(result.getIndex() + " "
+                    + ((result.getRequest().getTurn() == CheckersGame.BLACK) ? "B" : "W")
+                    + " " + result.getScore() + " " + moveText(result.getBestMove()));
+        }
+        input.close();
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.err.println(String.format("%d games, %d positions in %.2f s = %.1f positions/s, %d nodes/position",
+                games[0], positions, seconds, positions / seconds, (positions == 0) ? 0 : searched / positions));
+    }
+}
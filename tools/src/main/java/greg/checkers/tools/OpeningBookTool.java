@@ -0,0 +1,43 @@
+package greg.checkers.tools;
+
+import java.io.File;
+import java.io.IOException;
+
+import greg.checkers.game.CheckersGame;
+import greg.checkers.game.OpeningBookBuilder;
+
+// builds an opening book, printing progress every 100 searches.
+// run with: OpeningBookTool <file> <plies> <depth> [standard|any|both] [black|red|both]
+// where the last is the side given book moves
+public class OpeningBookTool {
+    public static void main(String[] args) throws IOException {
+        if (args.length < 3) {
+            System.err.println("usage: OpeningBookTool <file> <plies> <depth> [standard|any|both] [black|red|both]");
+            System.exit(1);
+        }
+        String rules = (args.length > 3) ? args[3] : "both";
+        String sides = (args.length > 4) ? args[4] : "both";
+        OpeningBookBuilder builder = new OpeningBookBuilder(Integer.parseInt(args[1]), Integer.parseInt(args[2]));
+        builder.setListener(new OpeningBookBuilder.Listener() {
+            @Override
+            public void searched(int count) {
+                if (count % 100 == 0) {
+                    System.out.println(count + " positions searched");
+                }
+            }
+        });
+        for (boolean allowAnyMove : new boolean[]{false, true}) {
+            if (rules.equals(allowAnyMove ? "standard" : "any")) {
+                continue;
+            }
+            if (!sides.equals("red")) {
+                builder.build(allowAnyMove, CheckersGame.BLACK);
+            }
+            if (!sides.equals("black")) {
+                builder.build(allowAnyMove, CheckersGame.RED);
+            }
+        }
+        int moves = builder.write(new File(args[0]));
+        System.out.println("wrote " + moves + " moves for " + builder.size() + " positions");
+    }
+}
@@ -0,0 +1,47 @@
+package greg.checkers.tools;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+
+import greg.checkers.game.PdnException;
+import greg.checkers.game.PdnGame;
+import greg.checkers.game.PdnReader;
+
+// reads a whole PDN archive, checking every move, and prints the games, moves
+// and games per second. run with: PdnReadTool <file> [standard|any]
+public class PdnReadTool {
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("usage: PdnReadTool <file> [standard|any]");
+            System.exit(1);
+        }
+        boolean allowAnyMove = args.length > 1 && args[1].equals("any");
+        PdnReader reader = new PdnReader(new FileInputStream(new File(args[0])), allowAnyMove);
+        long start = System.nanoTime();
+        int games = 0;
+        int errors = 0;
+        long plies = 0;
+        try {
+            while (true) {
+                try {
+                    PdnGame game = reader.next();
+                    if (game == null) {
+                        break;
+                    }
+                    games++;
+                    plies += game.getMoves().size();
+                } catch (PdnException e) {
+                    if (errors++ < 10) {
+                        System.err.println(e.getMessage());
+                    }
+                }
+            }
+        } finally {
+            reader.close();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.println(String.format("%d games, %d rejected, %d moves in %.2f s: %.0f games/s",
+                games, errors, plies, seconds, (games + errors) / seconds));
+    }
+}
@@ -0,0 +1,31 @@
+package greg.checkers.tools;
+
+import java.io.File;
+import java.io.IOException;
+
+import greg.checkers.game.TablebaseGenerator;
+
+// writes an endgame tablebase, printing each material group as it is solved.
+// run with: TablebaseTool <file> <max pieces> [any]
+public class TablebaseTool {
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("usage: TablebaseTool <file> <max pieces> [any]");
+            System.exit(1);
+        }
+        boolean anyMove = args.length > 2 && args[2].equals("any");
+        TablebaseGenerator generator = new TablebaseGenerator(Integer.parseInt(args[1]), anyMove);
+        generator.setListener(new TablebaseGenerator.Listener() {
+            @Override
+            public void solved(int[] counts, int positions, int longestPlies, long nanos) {
+                System.out.println("solved " + counts[0] + " " + counts[1] + " " + counts[2] + " " + counts[3]
+                        + ": " + positions + " positions, longest " + longestPlies + " plies, "
+                        + nanos / 1000000 + " ms");
+            }
+        });
+        generator.generate();
+        File file = new File(args[0]);
+        long positions = generator.write(file);
+        System.out.println("wrote " + positions + " positions in " + file.length() + " bytes");
+    }
+}
@@ -0,0 +1,280 @@
+package greg.checkers.tools;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import greg.checkers.game.AlphaBeta;
+import greg.checkers.game.Board;
+import greg.checkers.game.CheckersGame;
+import greg.checkers.game.Move;
+import greg.checkers.game.SearchEngine;
+import greg.checkers.game.SearchStats;
+import greg.checkers.game.Tablebase;
+import greg.checkers.game.TranspositionTable;
+
+// plays engine settings against each other to tell whether a change made the
+// search stronger. games come in pairs from the same random opening with the
+// colors swapped, and run in parallel with one single threaded search per game.
+// a game is drawn on a threefold repetition, after NO_PROGRESS_PLIES plies of
+// king moves without a capture, or after MAX_PLIES plies.
+// run with: Tournament <games> <player a> <player b> [threads] [opening plies] [standard|any] [tablebase]
+// where a player is a comma separated list of depth=, quiescence=, nodes= and millis=.
+// depth is 5 unless nodes= or millis= is given, which then set the only limit
+public class Tournament {
+    private static final int MAX_PLIES = 400;
+    private static final int NO_PROGRESS_PLIES = 80;
+    private static final long SEED = 0x5EED;
+    private static final int DEFAULT_DEPTH = 5;
+    // deep enough that a node or time limit always ends the search first
+    private static final int UNLIMITED_DEPTH = 64;
+
+    // search settings of one side
+    public static class Player {
+        int depth = DEFAULT_DEPTH;
+        int quiescence = AlphaBeta.DEFAULT_QUIESCENCE_LIMIT;
+        long nodes;
+        long millis;
+
+        public static Player parse(String spec) {
+            Player player = new Player();
+            boolean depthGiven = false;
+            for (String setting : spec.split(",")) {
+                String[] parts = setting.split("=");
+                if (parts.length != 2) {
+                    throw new IllegalArgumentException("bad player setting " + setting);
+                }
+                long value = Long.parseLong(parts[1]);
+                if (parts[0].equals("depth")) {
+                    player.depth = (int)value;
+                    depthGiven = true;
+                } else if (parts[0].equals("quiescence")) {
+                    player.quiescence = (int)value;
+                } else if (parts[0].equals("nodes")) {
+                    player.nodes = value;
+                } else if (parts[0].equals("millis")) {
+                    player.millis = value;
+                } else {
+                    throw new IllegalArgumentException("unknown player setting " + parts[0]);
+                }
+            }
+            if (!depthGiven && (player.nodes > 0 || player.millis > 0)) {
+                player.depth = UNLIMITED_DEPTH;
+            }
+            return player;
+        }
+
+        @Override
+        public String toString() {
+            return "depth=" + depth + ",quiescence=" + quiescence + ",nodes=" + nodes + ",millis=" + millis;
+        }
+    }
+
+    private final Player playerA;
+    private final Player playerB;
+    private final boolean allowAnyMove;
+    private final int openingPlies;
+    private volatile Tablebase tablebase;
+
+    // results from a's side, and the work of each player
+    private int wins;
+    private int draws;
+    private int losses;
+    private final long[] moves = new long[2];
+    private final long[] nodes = new long[2];
+    private final long[] nanos = new long[2];
+
+    public Tournament(Player playerA, Player playerB, boolean allowAnyMove, int openingPlies) {
+        this.playerA = playerA;
+        this.playerB = playerB;
+        this.allowAnyMove = allowAnyMove;
+        this.openingPlies = openingPlies;
+    }
+
+    // endgames the tablebase covers are scored from it by both players, or null for none
+    public void setTablebase(Tablebase tablebase) {
+        this.tablebase = tablebase;
+    }
+
+    // play games, rounded up to an even number, on threads
+    public void play(int games, int threads) throws InterruptedException {
+        final int pairs = (games + 1) / 2;
+        final AtomicInteger nextPair = new AtomicInteger();
+        final long start = System.nanoTime();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        ArrayList<Future<Void>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            futures.add(pool.submit(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    // tables are reused from game to game on each thread
+                    TranspositionTable[] tables = new TranspositionTable[]{
+                            new TranspositionTable(SearchEngine.DEFAULT_TABLE_BYTES),
+                            new TranspositionTable(SearchEngine.DEFAULT_TABLE_BYTES)};
+                    for (int pair = nextPair.getAndIncrement(); pair < pairs; pair = nextPair.getAndIncrement()) {
+                        ArrayList<Move> opening = opening(pair);
+                        for (int aColor : new int[]{CheckersGame.BLACK, CheckersGame.RED}) {
+                            int result = playGame(opening, aColor, tables);
+                            int played = record(result);
+                            if (played % 100 == 0 && played < pairs * 2) {
+                                report(start);
+                            }
+                        }
+                    }
+                    return null;
+                }
+            }));
+        }
+        try {
+            for (Future<Void> future : futures) {
+                future.get();
+            }
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+        report(start);
+    }
+
+    // random moves from the start, the same for both games of a pair
+    private ArrayList<Move> opening(int pair) {
+        Random random = new Random(SEED + pair);
+        while (true) {
+            CheckersGame game = new CheckersGame(allowAnyMove);
+            ArrayList<Move> opening = new ArrayList<>();
+            for (int ply = 0; ply < openingPlies; ply++) {
+                Move[] moves = game.getMoves();
+                if (moves.length == 0) {
+                    break;
+                }
+                Move move = moves[random.nextInt(moves.length)];
+                game.makeMove(move);
+                opening.add(move);
+            }
+            // an opening that ends the game is no use
+            if (opening.size() == openingPlies && game.getMoves().length > 0) {
+                return opening;
+            }
+        }
+    }
+
+    // 1 if a wins, -1 if b wins, 0 for a draw
+    private int playGame(ArrayList<Move> opening, int aColor, TranspositionTable[] tables) {
+        CheckersGame game = new CheckersGame(allowAnyMove);
+        for (Move move : opening) {
+            game.makeMove(move);
+        }
+        tables[0].clear();
+        tables[1].clear();
+
+        HashMap<Long, Integer> seen = new HashMap<>();
+        int quietPlies = 0;
+        for (int ply = opening.size(); ply < MAX_PLIES; ply++) {
+            int turn = game.whoseTurn();
+            Board board = game.getBoard();
+            Integer count = seen.get(board.getHash(turn));
+            if (count != null && count == 2) {
+                return 0;
+            }
+            seen.put(board.getHash(turn), (count == null) ? 1 : count + 1);
+
+            int side = (turn == aColor) ? 0 : 1;
+            Player player = (side == 0) ? playerA : playerB;
+            AlphaBeta search = new AlphaBeta(allowAnyMove, tables[side]);
+            search.setTablebase(tablebase);
+            search.setQuiescenceLimit(player.quiescence);
+            search.setNodeLimit(player.nodes);
+            Move move = search.chooseMove(board, turn, player.depth, player.millis);
+            if (move == null) {
+                return (side == 0) ? -1 : 1;
+            }
+            SearchStats stats = search.getStats();
+            addWork(side, stats.getNodes() + stats.getQuiescenceNodes(), stats.getElapsedNanos());
+
+            boolean progress = !move.captures.isEmpty() || !board.getPiece(move.start()).isKing();
+            quietPlies = progress ? 0 : quietPlies + 1;
+            if (quietPlies >= NO_PROGRESS_PLIES) {
+                return 0;
+            }
+            game.makeMove(move);
+        }
+        return 0;
+    }
+
+    // count a result, returning the number of games played
+    private synchronized int record(int result) {
+        if (result > 0) {
+            wins++;
+        } else if (result < 0) {
+            losses++;
+        } else {
+            draws++;
+        }
+        return wins + draws + losses;
+    }
+
+    private synchronized void addWork(int side, long searchNodes, long searchNanos) {
+        moves[side]++;
+        nodes[side] += searchNodes;
+        nanos[side] += searchNanos;
+    }
+
+    // elo difference for a score between 0 and 1
+    private static double elo(double score) {
+        return -400 * Math.log10(1 / score - 1);
+    }
+
+    private synchronized void report(long start) {
+        int games = wins + draws + losses;
+        if (games == 0) {
+            return;
+        }
+        double score = (wins + draws / 2.0) / games;
+        // 95% interval of the score from the spread of the game results
+        double variance = (wins * (1 - score) * (1 - score) + draws * (0.5 - score) * (0.5 - score)
+                + losses * score * score) / games;
+        double margin = 1.96 * Math.sqrt(variance / games);
+        double low = elo(Math.max(score - margin, 1e-6));
+        double high = elo(Math.min(score + margin, 1 - 1e-6));
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.println(games + " games: +" + wins + " -" + losses + " =" + draws
+                + String.format(", score %.3f, elo %+.0f (%+.0f to %+.0f)", score,
+                        elo(Math.min(Math.max(score, 1e-6), 1 - 1e-6)), low, high)
+                + String.format(", %.2f games/s", games / seconds));
+        for (int side = 0; side < 2; side++) {
+            System.out.println(String.format("  %s %s: %d nodes/move, %.2f ms/move",
+                    (side == 0) ? "a" : "b", (side == 0) ? playerA : playerB,
+                    (moves[side] == 0) ? 0 : nodes[side] / moves[side],
+                    (moves[side] == 0) ? 0 : nanos[side] / 1e6 / moves[side]));
+        }
+    }
+
+    public static void main(String[] args) throws InterruptedException, IOException {
+        if (args.length < 3) {
+            System.err.println("usage: Tournament <games> <player a> <player b> [threads] [opening plies] [standard|any]"
+                    + " [tablebase]");
+            System.err.println("players are comma separated depth=, quiescence=, nodes= and millis= settings;");
+            System.err.println("depth is " + DEFAULT_DEPTH + " unless nodes= or millis= is given without it");
+            System.exit(1);
+        }
+        int threads = (args.length > 3) ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+        int openingPlies = (args.length > 4) ? Integer.parseInt(args[4]) : 4;
+        boolean allowAnyMove = args.length > 5 && args[5].equals("any");
+        Tournament tournament = new Tournament(Player.parse(args[1]), Player.parse(args[2]),
+                allowAnyMove, openingPlies);
+        if (args.length > 6) {
+            tournament.setTablebase(Tablebase.open(new File(args[6])));
+        }
+        tournament.play(Integer.parseInt(args[0]), threads);
+    }
+}